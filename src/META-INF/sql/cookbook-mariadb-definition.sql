@@ -7,6 +7,18 @@ CREATE DATABASE cookbook CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci;
 USE cookbook;
 
 -- define tables, indices, etc.
+-- NOT an entity: the last identity allocated by the JPA provider, which allocates identities in
+-- blocks; note that BaseEntity identities remain AUTO_INCREMENT for scripts like this one, and
+-- MariaDB advances said counter beyond explicitly inserted identities; however, scripts should
+-- not insert entities while services are running, as they could take identities of blocks
+-- allocated but not yet used by the JPA provider
+CREATE TABLE IdentitySequence (
+	name CHAR(63) NOT NULL,
+	counter BIGINT NOT NULL,
+	PRIMARY KEY (name)
+);
+INSERT INTO IdentitySequence VALUES ("BaseEntity", 0);
+
 CREATE TABLE BaseEntity (
 	identity BIGINT NOT NULL AUTO_INCREMENT,
 	discriminator ENUM("Document", "Person", "Recipe", "IngredientType", "Ingredient") NOT NULL,
@@ -19,20 +31,31 @@ CREATE TABLE BaseEntity (
 
 CREATE TABLE Document (
 	documentIdentity BIGINT NOT NULL,
-	hash CHAR(64) NOT NULL,
+	hash BINARY(32) NOT NULL,
 	type VARCHAR(63) NOT NULL,
 	description VARCHAR(127) NULL,
-	content LONGBLOB NOT NULL,
+	size BIGINT NOT NULL,
+	compressed BOOLEAN NOT NULL DEFAULT FALSE,
 	PRIMARY KEY (documentIdentity),
 	FOREIGN KEY (documentIdentity) REFERENCES BaseEntity (identity) ON DELETE CASCADE ON UPDATE CASCADE,
 	UNIQUE KEY (hash)
 );
 
+-- NOT part of the BaseEntity hierarchy: lazily loaded document content; note that the
+-- foreign key refers to BaseEntity because the JPA provider may insert content rows before
+-- the corresponding Document rows
+CREATE TABLE DocumentContent (
+	documentReference BIGINT NOT NULL,
+	content LONGBLOB NOT NULL,
+	PRIMARY KEY (documentReference),
+	FOREIGN KEY (documentReference) REFERENCES BaseEntity (identity) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
 CREATE TABLE Person (
 	personIdentity BIGINT NOT NULL,
 	avatarReference BIGINT NOT NULL,
 	email CHAR(128) NOT NULL,
-	passwordHash CHAR(64) NOT NULL,
+	passwordHash BINARY(32) NOT NULL,
 	groupAlias ENUM("USER", "ADMIN") NOT NULL,
 	title VARCHAR(15) NULL,
 	surname VARCHAR(31) NOT NULL,
@@ -12,6 +12,7 @@ import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import javax.persistence.Version;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -22,7 +23,8 @@ import edu.sb.tool.JsonProtectedPropertyStrategy;
 /**
  * This abstract class defines entities as the root of an inheritance tree. Having a common root entity class allows for the
  * unique generation of primary keys across all subclasses, and additionally for both polymorphic relationships and polymorphic
- * queries.
+ * queries. Primary keys are allocated in blocks from a sequence table, which allows assigning them upon persisting instead of
+ * reading them back after each insert, and therefore inserting many entities using JDBC batches.
  */
 @Entity
 @Table(schema="cookbook", name="BaseEntity", indexes=@Index(columnList="discriminator"))
@@ -33,7 +35,8 @@ import edu.sb.tool.JsonProtectedPropertyStrategy;
 public abstract class BaseEntity implements Comparable<BaseEntity> {
 
 	@PositiveOrZero
-	@Id	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Id	@GeneratedValue(strategy=GenerationType.TABLE, generator="identity")
+	@TableGenerator(name="identity", schema="cookbook", table="IdentitySequence", pkColumnName="name", valueColumnName="counter", pkColumnValue="BaseEntity", allocationSize=50)
 	private long identity;
 
 	@Positive
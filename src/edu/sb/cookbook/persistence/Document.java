@@ -1,40 +1,86 @@
 package edu.sb.cookbook.persistence;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 import javax.json.bind.annotation.JsonbProperty;
 import javax.json.bind.annotation.JsonbTransient;
 import javax.json.bind.annotation.JsonbVisibility;
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.OneToOne;
+import javax.persistence.PrePersist;
 import javax.persistence.PrimaryKeyJoinColumn;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
+import javax.validation.constraints.PositiveOrZero;
 import javax.validation.constraints.Size;
 import org.eclipse.persistence.annotations.CacheIndex;
+import org.eclipse.persistence.annotations.Customizer;
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.indirection.ValueHolder;
+import org.eclipse.persistence.indirection.ValueHolderInterface;
+import org.eclipse.persistence.mappings.ForeignReferenceMapping;
+import edu.sb.tool.ContentTypes;
 import edu.sb.tool.Copyright;
+import edu.sb.tool.HashCode;
 import edu.sb.tool.HashCodes;
 import edu.sb.tool.JsonProtectedPropertyStrategy;
 
 
 
 /**
- * Instances of this class model document entities.
+ * Instances of this class model document entities. Note that content of compressible types
+ * (see {@link ContentTypes#isCompressible(String)}) is stored deflated if this saves at least
+ * an eighth of it's size; this is transparent to users of this class, and does not affect
+ * the hash, which is always calculated from the uncompressed content. Also note that the
+ * content is stored separately (see {@link DocumentContent}), and loaded lazily upon first
+ * access; therefore, queries for document metadata never load document content. Lazy loading
+ * is based on an EclipseLink value holder, which doesn't require weaving.
  */
 @Entity
 @Table(schema="cookbook", name="Document", indexes={})
 @PrimaryKeyJoinColumn(name="documentIdentity")
 @DiscriminatorValue("Document")
+@Customizer(Document.ContentIndirectionCustomizer.class)
 @JsonbVisibility(JsonProtectedPropertyStrategy.class)
 @Copyright(year=2022, holders="Sascha Baumeister")
 public class Document extends BaseEntity {
 	static private final byte[] EMPTY_BYTES = {};
+	static final int MAX_CONTENT_LENGTH = Integer.MAX_VALUE - 8;
+	static private final int SPOOL_INITIAL_CAPACITY = 0x10000;
+	static private final int SPOOL_THRESHOLD = 0x100000;
+	static private final Cleaner SPOOL_CLEANER = Cleaner.create();
+	static private final int DEFLATE_BUFFER_SIZE = 0x2000;
 
-	@NotNull @Size(min=64, max=64)
-	@Column(nullable=false, updatable=false, insertable=true, unique=true, length=64)
+	@NotNull
+	@Column(nullable=false, updatable=false, insertable=true, unique=true, length=32)
+	@Convert(converter=HashCodeConverter.class)
 	@CacheIndex(updateable=false)
-	private String hash;
+	private HashCode hash;
 
 	@NotEmpty @Size(max=63) @Pattern(regexp="[a-zA-Z_0-9\\.\\-\\+]+/[a-zA-Z_0-9\\.\\-\\+]+")
 	@Column(nullable=false, updatable=true, length=63)
@@ -43,9 +89,21 @@ public class Document extends BaseEntity {
 	@Size(max=127)
 	private String description;
 
-	@NotNull
-	@Column(nullable=false, updatable=false, insertable=true, length=Integer.MAX_VALUE)
-	private byte[] content;
+	@PositiveOrZero
+	@Column(nullable=false, updatable=false, insertable=true)
+	private long size;
+
+	@Column(nullable=false, updatable=false, insertable=true)
+	private boolean compressed;
+
+	@OneToOne(mappedBy="document", fetch=FetchType.LAZY, optional=true, cascade=CascadeType.PERSIST, targetEntity=DocumentContent.class)
+	private ValueHolderInterface content;
+
+	@Transient
+	private Path spoolPath;
+
+	@Transient
+	private Cleaner.Cleanable spoolCleanup;
 
 
 	/**
@@ -64,29 +122,121 @@ public class Document extends BaseEntity {
 		super();
 		if (content == null) content = EMPTY_BYTES;
 
-		this.hash = HashCodes.sha2HashText(256, content);
+		this.hash = HashCodes.sha2Hash(256, content);
+		this.type = "application/octet-stream";
+		this.description = null;
+		this.size = content.length;
+		this.content = new ValueHolder(new DocumentContent(this, content));
+	}
+
+
+	/**
+	 * Initializes a new instance by spooling the given source's remaining content. The content's
+	 * hash is calculated incrementally while it is being read, which avoids an additional pass
+	 * over the content once it has been spooled. Note that the given source is not closed.
+	 * @param source the content source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem, or if the content is too large
+	 */
+	public Document (final InputStream source) throws NullPointerException, IOException {
+		this(Channels.newChannel(source));
+	}
+
+
+	/**
+	 * Initializes a new instance by spooling the given source's remaining content. The content's
+	 * hash is calculated incrementally while it is being read, which avoids an additional pass
+	 * over the content once it has been spooled. Content up to one MiB is spooled into the heap,
+	 * directly into an array of appropriate size if the given source is seekable. Larger content
+	 * is spooled into a temporary file instead, and read into an array of appropriate size once
+	 * it is accessed or persisted; said file is deleted once the content has been read, or once
+	 * this instance has been garbage collected. Note that the given source is not closed.
+	 * @param source the content source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Document (final ReadableByteChannel source) throws NullPointerException, IOException {
+		super();
+
+		final MessageDigest digest = HashCodes.sha2Digest(256);
+		final byte[] content = spool(source, digest, SPOOL_THRESHOLD);
+		final ByteBuffer probe = ByteBuffer.allocate(1);
+		if (content.length < SPOOL_THRESHOLD || source.read(probe) == -1) {
+			this.content = new ValueHolder(new DocumentContent(this, content));
+			this.size = content.length;
+		} else {
+			final Path spoolPath = Files.createTempFile("document-", ".tmp");
+			try {
+				this.size = spill(content, probe.flip(), source, digest, spoolPath);
+			} catch (final IOException | RuntimeException | Error exception) {
+				Files.deleteIfExists(spoolPath);
+				throw exception;
+			}
+
+			this.content = new ValueHolder(null);
+			this.spoolPath = spoolPath;
+			this.spoolCleanup = SPOOL_CLEANER.register(this, () -> deleteQuietly(spoolPath));
+		}
+		this.hash = HashCodes.toHashCode(digest);
+		this.type = "application/octet-stream";
+		this.description = null;
+	}
+
+
+	/**
+	 * Initializes a new instance referencing the content of the given file. The content's hash
+	 * is calculated from the memory-mapped file, without reading the content into the heap. The
+	 * file is read into an array of appropriate size only once the content is accessed or persisted;
+	 * if the content is stored within a blob store instead, it is copied from the file without
+	 * ever entering the heap (see {@link DocumentStore#resolve(javax.persistence.EntityManager, Document)}).
+	 * Therefore the file must neither be modified nor removed before either of this happens; note
+	 * that it is never removed by this instance.
+	 * @param path the content file path
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Document (final Path path) throws NullPointerException, IOException {
+		super();
+
+		try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+			this.hash = new HashCode(HashCodes.sha2HashCode(256, source));
+			this.size = source.size();
+		}
+		this.content = new ValueHolder(null);
+		this.spoolPath = path;
+		this.spoolCleanup = null;
 		this.type = "application/octet-stream";
 		this.description = null;
-		this.content = content;
 	}
 
 
 	/**
 	 * Returns the hash.
-	 * @return the hash
+	 * @return the hexadecimal hash
 	 */
 	@JsonbProperty
 	public String getHash () {
-		return this.hash;
+		return this.hash == null ? null : this.hash.toString();
 	}
 
 
 	/**
 	 * Sets the hash.
-	 * @param hash the hash
+	 * @param hash the hexadecimal hash, or {@code null} for none
+	 * @throws IllegalArgumentException if the given hash is not hexadecimal
 	 */
-	protected void setHash (final String hash) {
-		this.hash = hash;
+	protected void setHash (final String hash) throws IllegalArgumentException {
+		this.hash = hash == null ? null : HashCode.valueOf(hash);
+	}
+
+
+	/**
+	 * Returns the hash in binary form.
+	 * @return the hash code
+	 */
+	@JsonbTransient
+	public HashCode getHashCode () {
+		return this.hash;
 	}
 
 
@@ -132,30 +282,305 @@ public class Document extends BaseEntity {
 
 	/**
 	 * Returns the size; note that this operation is present
-	 * solely for marshaling purposes.
+	 * solely for marshaling purposes, and does not load the content.
 	 * @return the content's length
 	 */
 	@JsonbProperty
-	protected int getSize () {
-		return this.content.length;
+	protected long getSize () {
+		return this.size;
 	}
 
 
 	/**
-	 * Returns the content.
-	 * @return the content
+	 * Returns the content. Note that the content is {@code null} if it
+	 * is stored externally, see {@link DocumentStore}. Compressed content
+	 * is inflated into a new array on every call, and never retained by
+	 * this entity, as shared cache instances would pin it in memory.
+	 * @return the content, or {@code null} if stored externally
+	 * @throws IllegalStateException if spooled content is too large
+	 * @throws UncheckedIOException if spooled content cannot be read
 	 */
 	@JsonbTransient
-	public byte[] getContent () {
-		return this.content;
+	public byte[] getContent () throws IllegalStateException, UncheckedIOException {
+		final byte[] storedContent = this.storedContent();
+		if (!this.compressed | storedContent == null) return storedContent;
+		return inflate(storedContent, this.size);
 	}
 
 
 	/**
 	 * Sets the content.
-	 * @param content the content
+	 * @param content the uncompressed content, or {@code null} if stored externally
 	 */
 	protected void setContent (byte[] content) {
-		this.content = content;
+		this.releaseSpool();
+		this.content = new ValueHolder(content == null ? null : new DocumentContent(this, content));
+		this.compressed = false;
+	}
+
+
+	/**
+	 * Returns the content in the form it is stored, loading it if necessary.
+	 * @return the stored content, or {@code null} if stored externally
+	 * @throws IllegalStateException if spooled content is too large
+	 * @throws UncheckedIOException if spooled content cannot be read
+	 */
+	private byte[] storedContent () throws IllegalStateException, UncheckedIOException {
+		if (this.spoolPath != null) this.loadSpool();
+		final DocumentContent content = (DocumentContent) this.content.getValue();
+		return content == null ? null : content.getContent();
+	}
+
+
+	/**
+	 * Reads the spooled content into an array of appropriate size, which replaces the
+	 * spool file as this instance's content; the spool file is deleted afterwards.
+	 * @throws IllegalStateException if the spooled content is too large
+	 * @throws UncheckedIOException if the spooled content cannot be read
+	 */
+	private void loadSpool () throws IllegalStateException, UncheckedIOException {
+		if (this.size > MAX_CONTENT_LENGTH) throw new IllegalStateException("content too large");
+
+		final byte[] content = new byte[(int) this.size];
+		try (FileChannel source = FileChannel.open(this.spoolPath, StandardOpenOption.READ)) {
+			for (final ByteBuffer buffer = ByteBuffer.wrap(content); buffer.hasRemaining(); )
+				if (source.read(buffer) == -1) throw new EOFException();
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+		this.setContent(content);
+	}
+
+
+	/**
+	 * Returns the spool file path.
+	 * @return the path of the file containing content that has neither been
+	 *         loaded nor stored yet, or {@code null} for none
+	 */
+	Path getSpoolPath () {
+		return this.spoolPath;
+	}
+
+
+	/**
+	 * Releases the spool file, if any, deleting it if it is owned by this instance.
+	 */
+	private void releaseSpool () {
+		if (this.spoolCleanup != null) this.spoolCleanup.clean();
+		this.spoolCleanup = null;
+		this.spoolPath = null;
+	}
+
+
+	/**
+	 * Returns whether or not the content is loaded, which is always the case for documents that
+	 * have not been read from the database, regardless of whether they have been flushed yet.
+	 * @return {@code true} if the content is loaded, {@code false} if it will be loaded upon access
+	 */
+	boolean isContentLoaded () {
+		return this.content.isInstantiated();
+	}
+
+
+	/**
+	 * Returns whether or not the content is stored compressed.
+	 * @return {@code true} if the content is stored compressed, {@code false} otherwise
+	 */
+	boolean isCompressed () {
+		return this.compressed;
+	}
+
+
+	/**
+	 * Compresses the content before it is stored, if the type is compressible and compression
+	 * reduces the content size by at least one eighth.
+	 */
+	@PrePersist
+	protected void compressContent () {
+		if (this.spoolPath != null) this.loadSpool();
+		final DocumentContent content = (DocumentContent) this.content.getValue();
+		if (this.compressed | content == null || !ContentTypes.isCompressible(this.type)) return;
+
+		final byte[] uncompressedContent = content.getContent();
+		final byte[] compressedContent = deflate(uncompressedContent, uncompressedContent.length - (uncompressedContent.length >>> 3));
+		if (compressedContent == null) return;
+
+		content.setContent(compressedContent);
+		this.compressed = true;
+	}
+
+
+	/**
+	 * Reads the given source's remaining content into a byte array, until either the source is
+	 * exhausted or the given limit is reached, while simultaneously updating the given digest. If
+	 * the source is seekable, the array is allocated once using the remaining size; otherwise it
+	 * grows geometrically up to the given limit, and is trimmed once at the end if necessary.
+	 * Whenever the array is full, a single byte is probed in order to detect the end of the
+	 * content before growing the array. Note that the source may contain further content if the
+	 * resulting array's length matches the given limit.
+	 * @param source the content source
+	 * @param digest the message digest
+	 * @param limit the maximum content length
+	 * @return the content
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private byte[] spool (final ReadableByteChannel source, final MessageDigest digest, final int limit) throws NullPointerException, IOException {
+		if (digest == null) throw new NullPointerException();
+
+		final long remaining = source instanceof SeekableByteChannel
+			? ((SeekableByteChannel) source).size() - ((SeekableByteChannel) source).position()
+			: -1;
+
+		byte[] buffer = new byte[(int) Math.min(limit, remaining >= 0 ? remaining : SPOOL_INITIAL_CAPACITY)];
+		int length = 0;
+		while (true) {
+			if (length == buffer.length) {
+				if (length == limit) return buffer;
+				final ByteBuffer probe = ByteBuffer.allocate(1);
+				if (source.read(probe) == -1) break;
+				buffer = Arrays.copyOf(buffer, (int) Math.min(limit, Math.max(SPOOL_INITIAL_CAPACITY, 2L * length)));
+
+				if (probe.position() > 0) {
+					buffer[length] = probe.get(0);
+					digest.update(buffer, length, 1);
+					length += 1;
+				}
+			}
+
+			final int bytesRead = source.read(ByteBuffer.wrap(buffer, length, buffer.length - length));
+			if (bytesRead == -1) break;
+			digest.update(buffer, length, bytesRead);
+			length += bytesRead;
+		}
+
+		return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+	}
+
+
+	/**
+	 * Writes the given head, the given tail, and the given source's remaining content into the
+	 * given file, while simultaneously updating the given digest with the tail and the source's
+	 * remaining content; the head is expected to have been digested already. The remaining content
+	 * is copied through a bounded heap buffer.
+	 * @param head the spooled content
+	 * @param tail the content read from the source after the head, but not yet digested
+	 * @param source the content source
+	 * @param digest the message digest
+	 * @param path the spool file path
+	 * @return the total content length
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private long spill (final byte[] head, final ByteBuffer tail, final ReadableByteChannel source, final MessageDigest digest, final Path path) throws NullPointerException, IOException {
+		try (FileChannel sink = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (final ByteBuffer buffer = ByteBuffer.wrap(head); buffer.hasRemaining(); sink.write(buffer));
+
+			long length = head.length;
+			final ByteBuffer buffer = ByteBuffer.allocate(SPOOL_INITIAL_CAPACITY).put(tail);
+			for (boolean exhausted = false; !exhausted; buffer.clear()) {
+				exhausted = source.read(buffer) == -1;
+				buffer.flip();
+				digest.update(buffer.duplicate());
+				length += buffer.remaining();
+				while (buffer.hasRemaining()) sink.write(buffer);
+			}
+
+			return length;
+		}
+	}
+
+
+	/**
+	 * Deletes the given file, ignoring I/O related problems.
+	 * @param path the file path
+	 */
+	static private void deleteQuietly (final Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (final IOException exception) {
+			// do nothing
+		}
+	}
+
+
+	/**
+	 * Returns the given content deflated, provided the compressed content does not exceed
+	 * the given maximum length. Compression is abandoned as soon as the output exceeds said
+	 * length, which avoids compressing incompressible content as a whole.
+	 * @param content the content
+	 * @param maximumLength the maximum compressed length
+	 * @return the compressed content, or {@code null} if it would exceed the maximum length
+	 * @throws NullPointerException if the given content is {@code null}
+	 */
+	static private byte[] deflate (final byte[] content, final int maximumLength) throws NullPointerException {
+		final Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(content);
+			deflater.finish();
+
+			byte[] buffer = new byte[Math.max(0, Math.min(maximumLength, Math.max(DEFLATE_BUFFER_SIZE, content.length >>> 2)))];
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == buffer.length) {
+					if (length == maximumLength) return null;
+					buffer = Arrays.copyOf(buffer, (int) Math.min(maximumLength, 2L * length + 1));
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+
+			return Arrays.copyOf(buffer, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+
+	/**
+	 * Returns the given compressed content inflated.
+	 * @param compressedContent the compressed content
+	 * @param size the uncompressed content size
+	 * @return the uncompressed content
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalStateException if the given content is corrupt
+	 */
+	static private byte[] inflate (final byte[] compressedContent, final long size) throws NullPointerException, IllegalStateException {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressedContent);
+
+			final byte[] content = new byte[(int) size];
+			int length = 0;
+			while (length < content.length) {
+				final int bytesInflated = inflater.inflate(content, length, content.length - length);
+				if (bytesInflated == 0 && (inflater.finished() | inflater.needsInput() | inflater.needsDictionary())) break;
+				length += bytesInflated;
+			}
+
+			if (length < content.length) throw new IllegalStateException("truncated content");
+			return content;
+		} catch (final DataFormatException exception) {
+			throw new IllegalStateException(exception);
+		} finally {
+			inflater.end();
+		}
+	}
+
+
+
+	/**
+	 * Descriptor customizer that configures basic value holder indirection for the content
+	 * relationship. Without it, EclipseLink reverts lazy one-to-one relationships to eager
+	 * fetching whenever entity classes have not been woven.
+	 */
+	static public class ContentIndirectionCustomizer implements DescriptorCustomizer {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void customize (final ClassDescriptor descriptor) {
+			((ForeignReferenceMapping) descriptor.getMappingForAttributeName("content")).useBasicIndirection();
+		}
 	}
 }
\ No newline at end of file
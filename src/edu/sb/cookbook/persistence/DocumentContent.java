@@ -0,0 +1,82 @@
+package edu.sb.cookbook.persistence;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.MapsId;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import edu.sb.tool.Copyright;
+
+
+/**
+ * Instances of this class model the content of document entities, in the form it is stored.
+ * Separating content from document metadata allows said metadata to be queried without loading
+ * the content. Note that this class is not part of the {@link BaseEntity} hierarchy, as it's
+ * instances share their identity with the document they belong to.
+ */
+@Entity
+@Table(schema="cookbook", name="DocumentContent")
+@Copyright(year=2026, holders="Sascha Baumeister")
+public class DocumentContent {
+
+	@Id
+	private long documentIdentity;
+
+	@MapsId
+	@OneToOne(optional=false)
+	@JoinColumn(name="documentReference", nullable=false, updatable=false, insertable=true)
+	private Document document;
+
+	@NotNull
+	@Column(nullable=false, updatable=false, insertable=true, length=Integer.MAX_VALUE)
+	private byte[] content;
+
+
+	/**
+	 * Initializes a new instance.
+	 */
+	protected DocumentContent () {
+		this(null, null);
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param document the document
+	 * @param content the content
+	 */
+	protected DocumentContent (final Document document, final byte[] content) {
+		this.document = document;
+		this.content = content;
+	}
+
+
+	/**
+	 * Returns the document.
+	 * @return the document
+	 */
+	public Document getDocument () {
+		return this.document;
+	}
+
+
+	/**
+	 * Returns the content.
+	 * @return the content in the form it is stored
+	 */
+	public byte[] getContent () {
+		return this.content;
+	}
+
+
+	/**
+	 * Sets the content.
+	 * @param content the content in the form it is stored
+	 */
+	protected void setContent (final byte[] content) {
+		this.content = content;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,624 @@
+package edu.sb.cookbook.persistence;
+
+import static javax.ws.rs.core.Response.Status.PARTIAL_CONTENT;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+import edu.sb.tool.BloomFilter;
+import edu.sb.tool.ContentRange;
+import edu.sb.tool.Copyright;
+import edu.sb.tool.FileBlobStore;
+import edu.sb.tool.HashCode;
+import edu.sb.tool.HashCodes;
+
+
+/**
+ * Content-addressed document store that resolves documents by their hash before persisting them,
+ * turning duplicate uploads into references to the pre-existing document instead of transactions
+ * failing due to the unique hash constraint. An in-memory Bloom filter covering the hashes of all
+ * persisted documents is maintained alongside, which allows negative lookups to be answered
+ * without querying the database. The filter is built from the database upon construction, and
+ * is updated whenever a document is persisted using this store. Hashes of documents persisted
+ * within transactions that are later rolled back remain in the filter, which merely results in
+ * an additional false positive.
+ * <p>Documents persisted by other means, like other server nodes, SQL scripts or plain entity
+ * managers, are unknown to the filter until it is rebuilt, which happens in the background using
+ * an entity manager of it's own once the filter is older than five minutes, or once more hashes
+ * have been added than it is sized for; callers keep using the current filter meanwhile. Rebuilds
+ * can also be triggered synchronously using {@link #rebuild(EntityManager)}. Therefore
+ * {@link #find(EntityManager, String)} may miss such documents for up to five minutes, and
+ * {@link #resolve(EntityManager, Document)} may attempt to persist a duplicate of such a document.
+ * In the latter case, the unique hash constraint fails the flush, and the hash is added to the
+ * filter, which allows the failed transaction's retry to resolve the pre-existing document.</p>
+ * <p>Optionally, document content can be stored within a {@link FileBlobStore} instead of the
+ * database. In this storage mode, documents persisted using this store retain their metadata and
+ * hash only, while their content is written to the file system beforehand; reading such content
+ * happens via memory-mapping, and serving it by streaming it from the file system. Content of documents
+ * persisted within transactions that are later rolled back remains in the file system, ready to
+ * be reused by subsequent documents with the same hash.</p>
+ * <p>Additionally, this store supports reading arbitrary ranges of document content without
+ * loading the remainder, and serving such ranges as partial HTTP responses, using the document's
+ * hash as entity tag.</p>
+ * <p>Finally, this store manages resumable chunked upload sessions (see {@link DocumentUpload}),
+ * whose content is resolved like any other document once the upload is complete, and whose Merkle
+ * root is verified if the client provides one. The number of concurrent sessions is limited, and
+ * sessions idle for more than an hour are aborted by a background sweeper, which removes their
+ * spool files; the sweeper is stopped by {@link #close()}.</p>
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class DocumentStore implements AutoCloseable {
+	static private final String QUERY_HASHES = "select d.hash from Document as d";
+	static private final String QUERY_DOCUMENTS = "select d from Document as d where d.hash = :hash";
+	static private final String QUERY_COUNT = "select count(d) from Document as d";
+	static private final String QUERY_CONTENT_RANGE = "SELECT SUBSTRING(content, ?1, ?2) FROM cookbook.DocumentContent WHERE documentReference = ?3";
+	static private final byte[] EMPTY_BYTES = {};
+	static private final long FILTER_TIME_TO_LIVE = TimeUnit.MINUTES.toNanos(5);
+	static private final long UPLOAD_IDLE_TIMEOUT = TimeUnit.HOURS.toNanos(1);
+	static private final long UPLOAD_SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+	static private final int MAX_UPLOAD_COUNT = 1000;
+
+	private final long minimumCapacity;
+	private final double falsePositiveProbability;
+	private final FileBlobStore blobStore;
+	private final EntityManagerFactory entityManagerFactory;
+	private final Map<String,DocumentUpload> uploads;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicBoolean rebuildScheduled;
+	private final AtomicLong hashFilterCount;
+	private final Set<Set<String>> pendingHashSets;
+	private volatile BloomFilter hashFilter;
+	private volatile long hashFilterCapacity;
+	private volatile long hashFilterTime;
+
+
+	/**
+	 * Initializes a new instance that stores document content within the database, and builds
+	 * it's Bloom filter.
+	 * @param entityManager the entity manager used for building the Bloom filter, whose factory
+	 *        provides the entity managers used for rebuilding it in the background
+	 * @param minimumCapacity the minimum number of document hashes the Bloom filter is sized for
+	 * @param falsePositiveProbability the Bloom filter's false positive probability once
+	 *        sized capacity is reached, within range ]0, 1[
+	 * @throws NullPointerException if the given entity manager is {@code null}
+	 * @throws IllegalArgumentException if the given capacity is negative, or if the given
+	 *         probability is out of range
+	 * @throws PersistenceException if there is a problem querying the database
+	 */
+	public DocumentStore (final EntityManager entityManager, final long minimumCapacity, final double falsePositiveProbability) throws NullPointerException, IllegalArgumentException, PersistenceException {
+		this(entityManager, minimumCapacity, falsePositiveProbability, null);
+	}
+
+
+	/**
+	 * Initializes a new instance, and builds it's Bloom filter.
+	 * @param entityManager the entity manager used for building the Bloom filter, whose factory
+	 *        provides the entity managers used for rebuilding it in the background
+	 * @param minimumCapacity the minimum number of document hashes the Bloom filter is sized for
+	 * @param falsePositiveProbability the Bloom filter's false positive probability once
+	 *        sized capacity is reached, within range ]0, 1[
+	 * @param blobStore the blob store for document content, or {@code null} to store
+	 *        document content within the database
+	 * @throws NullPointerException if the given entity manager is {@code null}
+	 * @throws IllegalArgumentException if the given capacity is negative, or if the given
+	 *         probability is out of range
+	 * @throws PersistenceException if there is a problem querying the database
+	 */
+	public DocumentStore (final EntityManager entityManager, final long minimumCapacity, final double falsePositiveProbability, final FileBlobStore blobStore) throws NullPointerException, IllegalArgumentException, PersistenceException {
+		if (minimumCapacity < 0 | !(falsePositiveProbability > 0 & falsePositiveProbability < 1)) throw new IllegalArgumentException();
+
+		this.minimumCapacity = minimumCapacity;
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.blobStore = blobStore;
+		this.entityManagerFactory = entityManager.getEntityManagerFactory();
+		this.uploads = new ConcurrentHashMap<>();
+		this.rebuildScheduled = new AtomicBoolean();
+		this.hashFilterCount = new AtomicLong();
+		this.pendingHashSets = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.rebuild(entityManager);
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "document-store");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::sweepUploads, UPLOAD_SWEEP_INTERVAL, UPLOAD_SWEEP_INTERVAL, TimeUnit.NANOSECONDS);
+	}
+
+
+	/**
+	 * Returns the blob store.
+	 * @return the blob store for document content, or {@code null} if document
+	 *         content is stored within the database
+	 */
+	public FileBlobStore getBlobStore () {
+		return this.blobStore;
+	}
+
+
+	/**
+	 * Rebuilds this store's Bloom filter from the hashes of all documents currently persisted.
+	 * The new filter is sized for twice the current document count (but at least this store's
+	 * minimum capacity), and replaces the current one once it is complete. Hashes added while
+	 * the new filter is built are added to it as well, even if several rebuilds overlap.
+	 * @param entityManager the entity manager
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws PersistenceException if there is a problem querying the database
+	 */
+	public void rebuild (final EntityManager entityManager) throws NullPointerException, PersistenceException {
+		if (entityManager == null) throw new NullPointerException();
+
+		final Set<String> pendingHashes = new HashSet<>();
+		synchronized (this) {
+			this.pendingHashSets.add(pendingHashes);
+		}
+
+		try {
+			final long documentCount = entityManager.createQuery(QUERY_COUNT, Long.class).getSingleResult();
+			final long capacity = Math.max(this.minimumCapacity, 2 * documentCount);
+			final BloomFilter hashFilter = new BloomFilter(capacity, this.falsePositiveProbability);
+			try (Stream<HashCode> hashes = entityManager.createQuery(QUERY_HASHES, HashCode.class).getResultStream()) {
+				hashes.forEach(hash -> hashFilter.add(hash.toString()));
+			}
+
+			synchronized (this) {
+				for (final String hash : pendingHashes)
+					hashFilter.add(hash);
+				this.hashFilter = hashFilter;
+				this.hashFilterCapacity = capacity;
+				this.hashFilterCount.set(documentCount + pendingHashes.size());
+				this.hashFilterTime = System.nanoTime();
+			}
+
+			Logger.getGlobal().log(Level.INFO, "Document hash filter rebuilt for {0} documents.", documentCount);
+		} finally {
+			synchronized (this) {
+				this.pendingHashSets.remove(pendingHashes);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the document with the given hash. If this store's Bloom filter rules out the
+	 * hash's presence, or if the given hash is not hexadecimal, the database is not queried.
+	 * Note that the given hash is case insensitive.
+	 * @param entityManager the entity manager
+	 * @param hash the hexadecimal document hash
+	 * @return the document, or {@code null} for none
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws PersistenceException if there is a problem querying the database
+	 */
+	public Document find (final EntityManager entityManager, final String hash) throws NullPointerException, PersistenceException {
+		if (entityManager == null | hash == null) throw new NullPointerException();
+
+		final String normalizedHash;
+		try {
+			normalizedHash = HashCode.valueOf(hash).toString();
+		} catch (final IllegalArgumentException exception) {
+			return null;
+		}
+		if (!this.hashFilter().mightContain(normalizedHash)) return null;
+
+		return this.query(entityManager, normalizedHash);
+	}
+
+
+	/**
+	 * Resolves the given transient document by it's hash. If there already is a persisted document
+	 * with the same hash, said document is returned instead of the given one; otherwise the given
+	 * document is persisted within the entity manager's active transaction, and returned. If this
+	 * store has a blob store, the given document's content is moved into it before persisting the
+	 * document; content that is still spooled within a file is copied from said file, without
+	 * passing through the heap. The database is queried only if this store's Bloom filter does not rule out the
+	 * hash's presence; otherwise the document is definitely new to this store. Newly persisted
+	 * documents are flushed immediately, which lets the unique hash constraint reject documents
+	 * whose hash has been persisted concurrently, or by other means; in this case the hash is
+	 * retained within the filter, the transaction is marked for rollback, and the exception is
+	 * rethrown, which allows a retry to resolve the pre-existing document instead.
+	 * @param entityManager the entity manager
+	 * @param document the transient document
+	 * @return the pre-existing or newly persisted document
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws PersistenceException if there is a problem querying the database, if flushing the
+	 *         document fails, or if there is a problem writing the content into the blob store
+	 */
+	public Document resolve (final EntityManager entityManager, final Document document) throws NullPointerException, PersistenceException {
+		if (entityManager == null) throw new NullPointerException();
+
+		final String hash = document.getHash();
+		if (this.hashFilter().mightContain(hash)) {
+			final Document existingDocument = this.query(entityManager, hash);
+			if (existingDocument != null) return existingDocument;
+		}
+
+		if (this.blobStore != null) {
+			final Path spoolPath = document.getSpoolPath();
+			final byte[] content = spoolPath == null ? document.getContent() : null;
+			if (spoolPath != null | content != null) {
+				try {
+					if (spoolPath != null)
+						this.blobStore.write(hash, spoolPath);
+					else
+						this.blobStore.write(hash, content);
+				} catch (final IOException exception) {
+					throw new PersistenceException(exception);
+				}
+				document.setContent(null);
+			}
+		}
+
+		entityManager.persist(document);
+		this.addHash(hash);
+		entityManager.flush();
+		return document;
+	}
+
+
+	/**
+	 * Returns the given document's content, regardless of where it is stored. Externally stored
+	 * content is memory-mapped, and therefore not copied into the heap.
+	 * @param document the document
+	 * @return the read-only content
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if the given document's content is stored externally,
+	 *         but this store lacks a blob store
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public ByteBuffer content (final Document document) throws NullPointerException, IllegalStateException, IOException {
+		final byte[] content = document.getContent();
+		if (content != null) return ByteBuffer.wrap(content).asReadOnlyBuffer();
+		if (this.blobStore == null) throw new IllegalStateException();
+
+		return this.blobStore.map(document.getHash());
+	}
+
+
+	/**
+	 * Returns a streaming output writing the given document's content into a JAX-RS response
+	 * entity stream, regardless of where said content is stored. Externally stored content is
+	 * streamed from it's file through a bounded heap buffer, and therefore never loaded as a whole.
+	 * @param document the document
+	 * @return the streaming output
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if the given document's content is stored externally,
+	 *         but this store lacks a blob store
+	 */
+	public StreamingOutput contentOutput (final Document document) throws NullPointerException, IllegalStateException {
+		final byte[] content = document.getContent();
+		if (content != null) return (final OutputStream output) -> output.write(content);
+		if (this.blobStore == null) throw new IllegalStateException();
+
+		return this.blobStore.streamingOutput(document.getHash());
+	}
+
+
+	/**
+	 * Returns the given range of the given document's content. For externally stored content,
+	 * the range is read from the blob store using positional reads; for uncompressed content
+	 * stored within the database, the range is selected using {@code SUBSTRING} on the content
+	 * column. In neither case is the remainder of the content loaded. Compressed content is
+	 * inflated as a whole before the range is extracted, and content that is already loaded,
+	 * like that of documents persisted but not yet flushed, is sliced in memory.
+	 * @param entityManager the entity manager
+	 * @param document the document
+	 * @param offset the content offset
+	 * @param length the maximum number of bytes to be read
+	 * @return the content range, which may be shorter than requested if the content ends prematurely
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given offset or length is negative
+	 * @throws PersistenceException if there is a problem querying the database,
+	 *         or reading the content from the blob store
+	 */
+	public byte[] content (final EntityManager entityManager, final Document document, final long offset, final int length) throws NullPointerException, IllegalArgumentException, PersistenceException {
+		if (entityManager == null) throw new NullPointerException();
+		if (offset < 0 | length < 0) throw new IllegalArgumentException();
+		if (offset >= document.getSize() | length == 0) return EMPTY_BYTES;
+
+		final int rangeLength = (int) Math.min(length, document.getSize() - offset);
+		final byte[] content = document.isCompressed() | document.isContentLoaded() ? document.getContent() : null;
+		if (content != null) return Arrays.copyOfRange(content, (int) offset, (int) offset + rangeLength);
+		if (document.isCompressed()) throw new PersistenceException();
+
+		if (this.blobStore != null && this.blobStore.contains(document.getHash())) {
+			try {
+				return this.blobStore.read(document.getHash(), offset, rangeLength);
+			} catch (final IOException exception) {
+				throw new PersistenceException(exception);
+			}
+		}
+
+		final byte[] range = (byte[]) entityManager
+			.createNativeQuery(QUERY_CONTENT_RANGE)
+			.setParameter(1, offset + 1)
+			.setParameter(2, rangeLength)
+			.setParameter(3, document.getIdentity())
+			.getSingleResult();
+		if (range == null) throw new PersistenceException();
+		return range;
+	}
+
+
+	/**
+	 * Returns a JAX-RS response for the given document's content, honoring the given HTTP "Range"
+	 * and "If-Range" headers. The document's hash serves as the response's entity tag, and as
+	 * validator for conditional range requests. A partial response (206) is returned if a single
+	 * satisfiable byte range is requested, and a complete response (200) otherwise.
+	 * @param entityManager the entity manager
+	 * @param document the document
+	 * @param rangeHeader the "Range" header value, or {@code null} for none
+	 * @param ifRangeHeader the "If-Range" header value, or {@code null} for none
+	 * @return the response
+	 * @throws NullPointerException if the given entity manager or document is {@code null}
+	 * @throws ClientErrorException (416) if the requested byte range cannot be satisfied
+	 * @throws IllegalStateException if the given document's content is stored externally,
+	 *         but this store lacks a blob store
+	 * @throws PersistenceException if there is a problem querying the database,
+	 *         or reading the content from the blob store
+	 */
+	public Response contentResponse (final EntityManager entityManager, final Document document, final String rangeHeader, final String ifRangeHeader) throws NullPointerException, ClientErrorException, IllegalStateException, PersistenceException {
+		if (entityManager == null) throw new NullPointerException();
+
+		final ContentRange range = ContentRange.parse(rangeHeader, ifRangeHeader, document.getHash(), document.getSize());
+		final ResponseBuilder builder;
+		if (range == null) {
+			builder = Response.ok(this.contentOutput(document)).header(HttpHeaders.CONTENT_LENGTH, document.getSize());
+		} else {
+			final Object entity;
+			if (this.blobStore != null && this.blobStore.contains(document.getHash()))
+				entity = (StreamingOutput) (final OutputStream output) -> {
+					this.blobStore.transferTo(document.getHash(), range.getOffset(), range.getLength(), Channels.newChannel(output));
+					output.flush();
+				};
+			else
+				entity = this.content(entityManager, document, range.getOffset(), (int) range.getLength());
+
+			builder = Response
+				.status(PARTIAL_CONTENT)
+				.entity(entity)
+				.header(HttpHeaders.CONTENT_LENGTH, range.getLength())
+				.header(ContentRange.CONTENT_RANGE, range.toString());
+		}
+
+		return builder
+			.type(document.getType())
+			.tag(document.getHash())
+			.header(ContentRange.ACCEPT_RANGES, ContentRange.BYTES)
+			.build();
+	}
+
+
+	/**
+	 * Begins a new upload session for content of the given size, transferred in chunks
+	 * of the given size. Chunks are spooled into the default temporary directory.
+	 * @param size the total content size
+	 * @param chunkSize the chunk size
+	 * @return the upload session
+	 * @throws IllegalArgumentException if the given size is negative or too large,
+	 *         or if the given chunk size is not strictly positive
+	 * @throws IllegalStateException if the maximum number of concurrent upload sessions is reached
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public DocumentUpload beginUpload (final long size, final int chunkSize) throws IllegalArgumentException, IllegalStateException, IOException {
+		synchronized (this.uploads) {
+			if (this.uploads.size() >= MAX_UPLOAD_COUNT) throw new IllegalStateException("too many uploads");
+
+			final DocumentUpload upload = new DocumentUpload(size, chunkSize, ForkJoinPool.commonPool(), null);
+			this.uploads.put(upload.getIdentity(), upload);
+			return upload;
+		}
+	}
+
+
+	/**
+	 * Returns the upload session with the given identity, and defers it's expiry.
+	 * @param identity the session identity
+	 * @return the upload session, or {@code null} for none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public DocumentUpload findUpload (final String identity) throws NullPointerException {
+		final DocumentUpload upload = this.uploads.get(identity);
+		if (upload != null) upload.touch();
+		return upload;
+	}
+
+
+	/**
+	 * Finishes the upload session with the given identity, and resolves a document of the given
+	 * type containing the uploaded content (see {@link #resolve(EntityManager, Document)}). If a
+	 * Merkle root is given, it is verified against the one calculated over the received chunks
+	 * beforehand (see {@link DocumentUpload#merkleRoot()}); as a mismatch implies that some chunk
+	 * has been corrupted without telling which, the session is aborted in this case. Otherwise, the
+	 * session is closed and removed after the document has been resolved.
+	 * @param entityManager the entity manager
+	 * @param identity the session identity
+	 * @param type the document type, or {@code null} for {@code application/octet-stream}
+	 * @param merkleRoot the expected hexadecimal Merkle root, or {@code null} for none
+	 * @return the pre-existing or newly persisted document, or {@code null} if there
+	 *         is no upload session with the given identity
+	 * @throws NullPointerException if the given entity manager or identity is {@code null}
+	 * @throws IllegalArgumentException if the given Merkle root does not match the content
+	 * @throws IllegalStateException if the upload is not complete
+	 * @throws PersistenceException if there is a problem querying the database,
+	 *         or accessing the uploaded content
+	 */
+	public Document finishUpload (final EntityManager entityManager, final String identity, final String type, final String merkleRoot) throws NullPointerException, IllegalArgumentException, IllegalStateException, PersistenceException {
+		if (entityManager == null) throw new NullPointerException();
+
+		final DocumentUpload upload = this.findUpload(identity);
+		if (upload == null) return null;
+		if (!upload.isComplete()) throw new IllegalStateException();
+		if (merkleRoot != null && !HashCodes.toHexadecimal(upload.merkleRoot()).equalsIgnoreCase(merkleRoot)) {
+			this.abortUpload(identity);
+			throw new IllegalArgumentException(merkleRoot);
+		}
+
+		final Document document;
+		try {
+			document = upload.toDocument();
+		} catch (final IOException exception) {
+			throw new PersistenceException(exception);
+		}
+		if (type != null) document.setType(type);
+
+		final Document resolvedDocument = this.resolve(entityManager, document);
+		this.abortUpload(identity);
+		return resolvedDocument;
+	}
+
+
+	/**
+	 * Aborts the upload session with the given identity, closing and removing it.
+	 * @param identity the session identity
+	 * @return {@code true} if the session has been aborted, {@code false} if there is none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public boolean abortUpload (final String identity) throws NullPointerException {
+		final DocumentUpload upload = this.uploads.remove(identity);
+		if (upload == null) return false;
+
+		try {
+			upload.close();
+		} catch (final IOException exception) {
+			Logger.getGlobal().log(Level.WARNING, exception.getMessage(), exception);
+		}
+		return true;
+	}
+
+
+	/**
+	 * Aborts all upload sessions that have been idle for longer than the upload idle timeout.
+	 */
+	private void sweepUploads () {
+		final long now = System.nanoTime();
+		for (final DocumentUpload upload : this.uploads.values()) {
+			if (now - upload.getAccessTime() > UPLOAD_IDLE_TIMEOUT && this.abortUpload(upload.getIdentity()))
+				Logger.getGlobal().log(Level.INFO, "Upload \"{0}\" expired.", upload.getIdentity());
+		}
+	}
+
+
+	/**
+	 * Stops the upload sweeper and the background rebuilds of the Bloom filter,
+	 * and aborts all upload sessions.
+	 */
+	@Override
+	public void close () {
+		this.scheduler.shutdownNow();
+		for (final String identity : this.uploads.keySet())
+			this.abortUpload(identity);
+	}
+
+
+	/**
+	 * Queries the document with the given hash, regardless of this store's Bloom filter.
+	 * @param entityManager the entity manager
+	 * @param hash the hexadecimal document hash
+	 * @return the document, or {@code null} for none
+	 * @throws PersistenceException if there is a problem querying the database
+	 */
+	private Document query (final EntityManager entityManager, final String hash) throws PersistenceException {
+		final HashCode hashCode;
+		try {
+			hashCode = HashCode.valueOf(hash);
+		} catch (final IllegalArgumentException exception) {
+			return null;
+		}
+
+		final List<Document> documents = entityManager
+			.createQuery(QUERY_DOCUMENTS, Document.class)
+			.setParameter("hash", hashCode)
+			.getResultList();
+		return documents.isEmpty() ? null : documents.get(0);
+	}
+
+
+	/**
+	 * Adds the given hash to this store's Bloom filter, and to the filters being rebuilt if any.
+	 * @param hash the hexadecimal document hash
+	 */
+	private void addHash (final String hash) {
+		synchronized (this) {
+			this.hashFilter.add(hash);
+			for (final Set<String> pendingHashes : this.pendingHashSets)
+				pendingHashes.add(hash);
+		}
+		this.hashFilterCount.incrementAndGet();
+	}
+
+
+	/**
+	 * Returns this store's Bloom filter. If it is older than it's time to live, or if more hashes
+	 * have been added than it is sized for, a rebuild is scheduled in the background, unless one
+	 * is already pending; callers continue using the current filter until it is replaced.
+	 * @return the Bloom filter
+	 */
+	private BloomFilter hashFilter () {
+		if (this.isStale() && this.rebuildScheduled.compareAndSet(false, true)) {
+			try {
+				this.scheduler.execute(this::rebuildInBackground);
+			} catch (final RejectedExecutionException exception) {
+				this.rebuildScheduled.set(false);
+			}
+		}
+
+		return this.hashFilter;
+	}
+
+
+	/**
+	 * Rebuilds this store's Bloom filter using an entity manager of it's own.
+	 * If the rebuild fails, the current filter remains in use.
+	 */
+	private void rebuildInBackground () {
+		try {
+			final EntityManager entityManager = this.entityManagerFactory.createEntityManager();
+			try {
+				this.rebuild(entityManager);
+			} finally {
+				entityManager.close();
+			}
+		} catch (final RuntimeException exception) {
+			Logger.getGlobal().log(Level.WARNING, "Document hash filter could not be rebuilt.", exception);
+		} finally {
+			this.rebuildScheduled.set(false);
+		}
+	}
+
+
+	/**
+	 * Returns whether or not this store's Bloom filter is stale.
+	 * @return {@code true} if the filter is older than it's time to live, or if more hashes have
+	 *         been added than it is sized for, {@code false} otherwise
+	 */
+	private boolean isStale () {
+		return System.nanoTime() - this.hashFilterTime > FILTER_TIME_TO_LIVE | this.hashFilterCount.get() > this.hashFilterCapacity;
+	}
+}
\ No newline at end of file
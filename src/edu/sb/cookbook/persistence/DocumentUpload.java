@@ -0,0 +1,359 @@
+package edu.sb.cookbook.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import edu.sb.tool.Copyright;
+import edu.sb.tool.HashCodes;
+
+
+/**
+ * Instances of this class model resumable upload sessions for document content. The content is
+ * transferred in chunks of fixed size (except for the last one), which may arrive in any order and
+ * concurrently, and are spooled into a temporary file using positional writes. Each chunk is
+ * hashed on a fork-join pool while it is being spooled, and optionally verified against a
+ * client-provided SHA-256 hash; chunks that have already been received are ignored, which allows
+ * clients to simply resend whatever is still missing after a network failure (see
+ * {@link #getMissingChunks()}). A chunk is claimed before it's hashed and spooled, which prevents
+ * concurrent duplicates from writing into the spool file simultaneously.
+ * <p>The chunk hashes form the leaves of a Merkle tree, whose root summarizes the complete content,
+ * and is calculated on a fork-join pool (see {@link #merkleRoot()}). Following RFC 6962, leaves are
+ * hashed with a {@code 0x00} prefix, and inner nodes with a {@code 0x01} prefix, over subtrees
+ * split at the largest power of two below their leaf count. Note that the document's canonical
+ * hash remains the SHA-256 hash of the complete content, which is calculated from the memory-mapped
+ * spool file by {@link #toDocument()}, without reading said content into the heap.</p>
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class DocumentUpload implements AutoCloseable {
+	static private final byte[] LEAF_PREFIX = { 0x00 };
+	static private final byte[] NODE_PREFIX = { 0x01 };
+
+	private final String identity;
+	private final long size;
+	private final int chunkSize;
+	private final int chunkCount;
+	private final ForkJoinPool pool;
+	private final Path spoolPath;
+	private final FileChannel spoolChannel;
+	private final byte[][] leafHashes;
+	private final BitSet receivedChunks;
+	private final BitSet claimedChunks;
+	private volatile long accessTime;
+
+
+	/**
+	 * Initializes a new instance, creating a temporary spool file within the given directory.
+	 * @param size the total content size
+	 * @param chunkSize the chunk size
+	 * @param pool the fork-join pool used for chunk hashing and Merkle tree calculation
+	 * @param spoolDirectory the spool directory, or {@code null} for the default temporary directory
+	 * @throws NullPointerException if the given pool is {@code null}
+	 * @throws IllegalArgumentException if the given size is negative or exceeds the maximum
+	 *         document size, or if the given chunk size is not strictly positive
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public DocumentUpload (final long size, final int chunkSize, final ForkJoinPool pool, final Path spoolDirectory) throws NullPointerException, IllegalArgumentException, IOException {
+		if (pool == null) throw new NullPointerException();
+		if (size < 0 | size > Document.MAX_CONTENT_LENGTH | chunkSize <= 0) throw new IllegalArgumentException();
+
+		this.identity = UUID.randomUUID().toString();
+		this.size = size;
+		this.chunkSize = chunkSize;
+		this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+		this.pool = pool;
+		this.spoolPath = spoolDirectory == null
+			? Files.createTempFile("upload-", ".tmp")
+			: Files.createTempFile(Files.createDirectories(spoolDirectory), "upload-", ".tmp");
+		this.spoolChannel = FileChannel.open(this.spoolPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.leafHashes = new byte[this.chunkCount][];
+		this.receivedChunks = new BitSet(this.chunkCount);
+		this.claimedChunks = new BitSet(this.chunkCount);
+		this.accessTime = System.nanoTime();
+	}
+
+
+	/**
+	 * Returns the identity.
+	 * @return the session identity
+	 */
+	public String getIdentity () {
+		return this.identity;
+	}
+
+
+	/**
+	 * Returns the size.
+	 * @return the total content size
+	 */
+	public long getSize () {
+		return this.size;
+	}
+
+
+	/**
+	 * Returns the chunk size.
+	 * @return the size of all chunks except the last one
+	 */
+	public int getChunkSize () {
+		return this.chunkSize;
+	}
+
+
+	/**
+	 * Returns the chunk count.
+	 * @return the number of chunks
+	 */
+	public int getChunkCount () {
+		return this.chunkCount;
+	}
+
+
+	/**
+	 * Returns the access time.
+	 * @return the {@link System#nanoTime() system time} in nanoseconds of this session's latest access
+	 */
+	public long getAccessTime () {
+		return this.accessTime;
+	}
+
+
+	/**
+	 * Updates the access time, which defers this session's expiry.
+	 */
+	void touch () {
+		this.accessTime = System.nanoTime();
+	}
+
+
+	/**
+	 * Returns whether or not all chunks have been received.
+	 * @return {@code true} if the upload is complete, {@code false} otherwise
+	 */
+	public synchronized boolean isComplete () {
+		return this.receivedChunks.cardinality() == this.chunkCount;
+	}
+
+
+	/**
+	 * Returns the indices of the chunks that have not been received yet.
+	 * @return the missing chunk indices in ascending order
+	 */
+	public synchronized int[] getMissingChunks () {
+		final int[] missingChunks = new int[this.chunkCount - this.receivedChunks.cardinality()];
+		for (int chunkIndex = this.receivedChunks.nextClearBit(0), index = 0; index < missingChunks.length; chunkIndex = this.receivedChunks.nextClearBit(chunkIndex + 1))
+			missingChunks[index++] = chunkIndex;
+		return missingChunks;
+	}
+
+
+	/**
+	 * Returns the expected length of the chunk with the given index.
+	 * @param chunkIndex the chunk index
+	 * @return the chunk length
+	 * @throws IndexOutOfBoundsException if the given index is out of range
+	 */
+	public int chunkLength (final int chunkIndex) throws IndexOutOfBoundsException {
+		if (chunkIndex < 0 | chunkIndex >= this.chunkCount) throw new IndexOutOfBoundsException();
+		return (int) Math.min(this.chunkSize, this.size - (long) chunkIndex * this.chunkSize);
+	}
+
+
+	/**
+	 * Accepts the chunk with the given index, unless it has already been received or is currently
+	 * being received. The chunk is claimed, and then spooled by the calling thread while it is
+	 * hashed on this session's fork-join pool; it counts as received once both are complete, and
+	 * the chunk has been verified. If any of this fails, the claim is released again, and a resent
+	 * chunk will overwrite whatever has been spooled. This method may be called concurrently for
+	 * different chunks, in which case they are hashed and spooled in parallel. Note that verifying
+	 * a chunk costs a second pass over it, as the client-provided hash covers the plain chunk, while
+	 * the leaf hash covers the prefixed one; both passes run as separate pool tasks, which keeps
+	 * the latency close to that of a single pass if the pool has spare workers.
+	 * @param chunkIndex the chunk index
+	 * @param chunk the chunk content
+	 * @param chunkHash the expected hexadecimal SHA-256 hash of the chunk, or {@code null} for none
+	 * @return {@code true} if the chunk has been accepted, {@code false} if it had already been
+	 *         received, or is currently being received
+	 * @throws NullPointerException if the given chunk is {@code null}
+	 * @throws IndexOutOfBoundsException if the given index is out of range
+	 * @throws IllegalArgumentException if the given chunk's length does not match the expected
+	 *         chunk length, or if it's hash does not match the given hash
+	 * @throws IllegalStateException if this session is closed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean accept (final int chunkIndex, final byte[] chunk, final String chunkHash) throws NullPointerException, IndexOutOfBoundsException, IllegalArgumentException, IllegalStateException, IOException {
+		if (chunk.length != this.chunkLength(chunkIndex)) throw new IllegalArgumentException();
+		if (!this.spoolChannel.isOpen()) throw new IllegalStateException();
+		synchronized (this) {
+			if (this.receivedChunks.get(chunkIndex) | this.claimedChunks.get(chunkIndex)) return false;
+			this.claimedChunks.set(chunkIndex);
+		}
+		this.touch();
+
+		boolean received = false;
+		try {
+			final ForkJoinTask<byte[]> leafHashTask = this.pool.submit(() -> leafHash(chunk));
+			final ForkJoinTask<byte[]> chunkHashTask = chunkHash == null ? null : this.pool.submit(() -> HashCodes.sha2HashCode(256, chunk));
+
+			final long offset = (long) chunkIndex * this.chunkSize;
+			for (final ByteBuffer buffer = ByteBuffer.wrap(chunk); buffer.hasRemaining(); this.spoolChannel.write(buffer, offset + buffer.position()));
+
+			final byte[] leafHash = leafHashTask.join();
+			if (chunkHashTask != null && !HashCodes.toHexadecimal(chunkHashTask.join()).equalsIgnoreCase(chunkHash)) throw new IllegalArgumentException(chunkHash);
+
+			synchronized (this) {
+				this.leafHashes[chunkIndex] = leafHash;
+				this.receivedChunks.set(chunkIndex);
+			}
+			received = true;
+			return true;
+		} finally {
+			if (!received) {
+				synchronized (this) {
+					this.claimedChunks.clear(chunkIndex);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the root of the Merkle tree over all chunk hashes, calculated on this session's
+	 * fork-join pool. The root of an empty upload is the SHA-256 hash of no content.
+	 * @return the Merkle tree root
+	 * @throws IllegalStateException if the upload is not complete
+	 */
+	public byte[] merkleRoot () throws IllegalStateException {
+		final byte[][] leafHashes;
+		synchronized (this) {
+			if (!this.isComplete()) throw new IllegalStateException();
+			leafHashes = this.leafHashes.clone();
+		}
+
+		if (leafHashes.length == 0) return HashCodes.sha2Digest(256).digest();
+		return this.pool.invoke(new MerkleTask(leafHashes, 0, leafHashes.length));
+	}
+
+
+	/**
+	 * Returns a new transient document containing the uploaded content. The document's hash is
+	 * calculated from the memory-mapped spool file, and the document merely references said file
+	 * instead of reading it into the heap (see {@link Document#Document(Path)}); therefore this
+	 * session must not be closed before the document has been resolved.
+	 * @return the document created
+	 * @throws IllegalStateException if the upload is not complete, or if this session is closed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Document toDocument () throws IllegalStateException, IOException {
+		if (!this.isComplete() | !this.spoolChannel.isOpen()) throw new IllegalStateException();
+
+		this.spoolChannel.force(false);
+		return new Document(this.spoolPath);
+	}
+
+
+	/**
+	 * Closes this session, and removes it's spool file.
+	 * @throws IOException if there is an I/O related problem
+	 */
+	@Override
+	public void close () throws IOException {
+		try {
+			this.spoolChannel.close();
+		} finally {
+			Files.deleteIfExists(this.spoolPath);
+		}
+	}
+
+
+	/**
+	 * Returns the Merkle tree leaf hash of the given chunk.
+	 * @param chunk the chunk content
+	 * @return the leaf hash
+	 */
+	static private byte[] leafHash (final byte[] chunk) {
+		final MessageDigest digest = HashCodes.sha2Digest(256);
+		digest.update(LEAF_PREFIX);
+		return digest.digest(chunk);
+	}
+
+
+
+	/**
+	 * Fork-join task calculating the Merkle tree root over a range of leaf hashes.
+	 */
+	static private class MerkleTask extends RecursiveTask<byte[]> {
+		static private final long serialVersionUID = 1L;
+		static private final int SEQUENTIAL_THRESHOLD = 64;
+
+		private final byte[][] leafHashes;
+		private final int from;
+		private final int to;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param leafHashes the leaf hashes
+		 * @param from the index of the range's first leaf
+		 * @param to the index after the range's last leaf
+		 */
+		public MerkleTask (final byte[][] leafHashes, final int from, final int to) {
+			this.leafHashes = leafHashes;
+			this.from = from;
+			this.to = to;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected byte[] compute () {
+			if (this.to - this.from <= SEQUENTIAL_THRESHOLD) return root(this.leafHashes, this.from, this.to);
+
+			final int split = this.from + Integer.highestOneBit(this.to - this.from - 1);
+			final MerkleTask leftTask = new MerkleTask(this.leafHashes, this.from, split);
+			leftTask.fork();
+			final byte[] rightHash = new MerkleTask(this.leafHashes, split, this.to).compute();
+			return node(leftTask.join(), rightHash);
+		}
+
+
+		/**
+		 * Returns the Merkle tree root over the given range of leaf hashes, calculated sequentially.
+		 * @param leafHashes the leaf hashes
+		 * @param from the index of the range's first leaf
+		 * @param to the index after the range's last leaf
+		 * @return the Merkle tree root
+		 */
+		static private byte[] root (final byte[][] leafHashes, final int from, final int to) {
+			if (to - from == 1) return leafHashes[from];
+
+			final int split = from + Integer.highestOneBit(to - from - 1);
+			return node(root(leafHashes, from, split), root(leafHashes, split, to));
+		}
+
+
+		/**
+		 * Returns the Merkle tree node hash for the given child hashes.
+		 * @param leftHash the left child hash
+		 * @param rightHash the right child hash
+		 * @return the node hash
+		 */
+		static private byte[] node (final byte[] leftHash, final byte[] rightHash) {
+			final MessageDigest digest = HashCodes.sha2Digest(256);
+			digest.update(NODE_PREFIX);
+			digest.update(leftHash);
+			return digest.digest(rightHash);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package edu.sb.cookbook.persistence;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import edu.sb.tool.Copyright;
+import edu.sb.tool.HashCode;
+
+
+/**
+ * JPA converter storing hash codes within binary columns, like {@code BINARY(32)} for SHA2-256.
+ */
+@Converter(autoApply=true)
+@Copyright(year=2026, holders="Sascha Baumeister")
+public class HashCodeConverter implements AttributeConverter<HashCode,byte[]> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] convertToDatabaseColumn (final HashCode attribute) {
+		return attribute == null ? null : attribute.getBytes();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HashCode convertToEntityAttribute (final byte[] column) {
+		return column == null ? null : new HashCode(column);
+	}
+}
@@ -0,0 +1,354 @@
+package edu.sb.cookbook.persistence;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import edu.sb.tool.AcceptHeader;
+import edu.sb.tool.Copyright;
+
+
+/**
+ * Bounded in-memory cache of scaled-down representations (thumbnails) of image documents, keyed by
+ * the original document's hash, the thumbnail size, and the thumbnail content type. Thumbnails are
+ * generated on demand using {@code javax.imageio}, and are themselves represented as transient
+ * documents. The cache is bounded by the accumulated size of the thumbnails it contains, evicting
+ * the least recently used ones first. Concurrent requests for the same missing thumbnail share a
+ * single generation. Images whose declared dimensions exceed a pixel limit are never decoded, which
+ * protects against decompression bombs, i.e. small files declaring huge canvases.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class ThumbnailCache {
+	static private final String[] FALLBACK_TYPES = { "image/png", "image/jpeg" };
+	static private final long MAXIMUM_PIXEL_COUNT = 40_000_000L;
+	static private final Object ORIGINAL = new Object();
+
+	private final DocumentStore documentStore;
+	private final long maximumWeight;
+	private final Map<String,Document> thumbnails;
+	private final Map<String,CompletableFuture<Object>> generations;
+	private long weight;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param documentStore the document store used to access document content
+	 * @param maximumWeight the maximum accumulated size of all cached thumbnails
+	 * @throws NullPointerException if the given document store is {@code null}
+	 * @throws IllegalArgumentException if the given weight is negative
+	 */
+	public ThumbnailCache (final DocumentStore documentStore, final long maximumWeight) throws NullPointerException, IllegalArgumentException {
+		if (documentStore == null) throw new NullPointerException();
+		if (maximumWeight < 0) throw new IllegalArgumentException();
+
+		this.documentStore = documentStore;
+		this.maximumWeight = maximumWeight;
+		this.thumbnails = new LinkedHashMap<>(16, 0.75f, true);
+		this.generations = new ConcurrentHashMap<>();
+		this.weight = 0;
+	}
+
+
+	/**
+	 * Returns the maximum weight.
+	 * @return the maximum accumulated size of all cached thumbnails
+	 */
+	public long getMaximumWeight () {
+		return this.maximumWeight;
+	}
+
+
+	/**
+	 * Returns the current weight.
+	 * @return the accumulated size of all cached thumbnails
+	 */
+	public synchronized long getWeight () {
+		return this.weight;
+	}
+
+
+	/**
+	 * Returns a thumbnail of the given document that fits within a square of the given size, and
+	 * has a content type acceptable according to the given HTTP "Accept" header. The original
+	 * document's type is preferred if it is acceptable and can be written, followed by PNG and JPEG.
+	 * Images are never scaled up; if the document's image is already small enough and of an
+	 * acceptable type, the result is the document itself. If another thread is generating the
+	 * same thumbnail, this operation waits for and shares it's result.
+	 * @param document the document
+	 * @param size the maximum thumbnail width and height in pixels
+	 * @param acceptHeader the "Accept" header value
+	 * @return the thumbnail, or {@code null} if the given document is not an image that can be
+	 *         read, if it's image exceeds the pixel limit, or if no acceptable content type can
+	 *         be written
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given size is not strictly positive
+	 * @throws IllegalStateException if the given document's content is stored externally,
+	 *         but the document store lacks a blob store
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Document thumbnail (final Document document, final int size, final String acceptHeader) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
+		if (acceptHeader == null) throw new NullPointerException();
+		if (size <= 0) throw new IllegalArgumentException();
+		if (!document.getType().startsWith("image/")) return null;
+
+		final String type = thumbnailType(document.getType(), acceptHeader);
+		if (type == null) return null;
+
+		final String key = document.getHash() + ':' + size + ':' + type;
+		final Document cachedThumbnail = this.cachedThumbnail(key);
+		if (cachedThumbnail != null) return cachedThumbnail;
+
+		final CompletableFuture<Object> generation = new CompletableFuture<>();
+		final CompletableFuture<Object> runningGeneration = this.generations.putIfAbsent(key, generation);
+		final Object result;
+		if (runningGeneration != null) {
+			result = join(runningGeneration);
+		} else {
+			try {
+				final Document thumbnail = this.cachedThumbnail(key);
+				result = thumbnail != null ? thumbnail : this.generate(document, size, type, key);
+				generation.complete(result);
+			} catch (final IOException | RuntimeException | Error exception) {
+				generation.completeExceptionally(exception);
+				throw exception;
+			} finally {
+				this.generations.remove(key, generation);
+			}
+		}
+
+		return result == ORIGINAL ? document : (Document) result;
+	}
+
+
+	/**
+	 * Removes all thumbnails of the document with the given hash.
+	 * @param hash the original document's hash
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public synchronized void invalidate (final String hash) throws NullPointerException {
+		final String prefix = hash + ':';
+		for (final Iterator<Map.Entry<String,Document>> iterator = this.thumbnails.entrySet().iterator(); iterator.hasNext(); ) {
+			final Map.Entry<String,Document> entry = iterator.next();
+			if (entry.getKey().startsWith(prefix)) {
+				this.weight -= entry.getValue().getSize();
+				iterator.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the cached thumbnail with the given key.
+	 * @param key the thumbnail key
+	 * @return the thumbnail, or {@code null} for none
+	 */
+	private synchronized Document cachedThumbnail (final String key) {
+		return this.thumbnails.get(key);
+	}
+
+
+	/**
+	 * Generates and caches a thumbnail of the given document.
+	 * @param document the document
+	 * @param size the maximum thumbnail width and height in pixels
+	 * @param type the thumbnail content type
+	 * @param key the thumbnail key
+	 * @return the thumbnail, {@link #ORIGINAL} if the document itself is suitable, or {@code null}
+	 *         if the given document is not an image that can be read, or if it's image exceeds
+	 *         the pixel limit
+	 * @throws IllegalStateException if the given document's content is stored externally,
+	 *         but the document store lacks a blob store
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private Object generate (final Document document, final int size, final String type, final String key) throws IllegalStateException, IOException {
+		final BufferedImage image = read(this.documentStore.content(document));
+		if (image == null) return null;
+		if (image.getWidth() <= size & image.getHeight() <= size & type.equals(document.getType())) return ORIGINAL;
+
+		final Document thumbnail = new Document(encode(scale(image, size, !type.equals("image/jpeg")), type));
+		thumbnail.setType(type);
+		thumbnail.setDescription(document.getDescription());
+
+		synchronized (this) {
+			final Document previous = this.thumbnails.put(key, thumbnail);
+			if (previous != null) this.weight -= previous.getSize();
+			this.weight += thumbnail.getSize();
+
+			for (final Iterator<Document> iterator = this.thumbnails.values().iterator(); this.weight > this.maximumWeight && iterator.hasNext(); ) {
+				this.weight -= iterator.next().getSize();
+				iterator.remove();
+			}
+		}
+
+		return thumbnail;
+	}
+
+
+	/**
+	 * Waits for the given thumbnail generation to complete, and returns it's result.
+	 * @param generation the thumbnail generation
+	 * @return the generation's result
+	 * @throws IOException if the generation failed with an I/O related problem, or if
+	 *         the current thread is interrupted while waiting
+	 */
+	static private Object join (final CompletableFuture<Object> generation) throws IOException {
+		try {
+			return generation.get();
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (final ExecutionException exception) {
+			final Throwable cause = exception.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new AssertionError(cause);
+		}
+	}
+
+
+	/**
+	 * Decodes the image within the given buffer, after checking it's declared dimensions
+	 * against the pixel limit.
+	 * @param buffer the buffer
+	 * @return the image, or {@code null} if the given buffer does not contain an image that
+	 *         can be read, or if said image exceeds the pixel limit
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private BufferedImage read (final ByteBuffer buffer) throws IOException {
+		try (ImageInputStream input = ImageIO.createImageInputStream(inputStream(buffer))) {
+			final Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+			if (readers == null || !readers.hasNext()) return null;
+
+			final ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				if ((long) reader.getWidth(0) * reader.getHeight(0) > MAXIMUM_PIXEL_COUNT) return null;
+				return reader.read(0);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the thumbnail content type for the given document type and HTTP "Accept" header,
+	 * which is the acceptable writable type with the highest quality value, preferring the
+	 * original document's type over the fallback types in case of ties.
+	 * @param documentType the original document's content type
+	 * @param acceptHeader the "Accept" header value
+	 * @return the thumbnail content type, or {@code null} for none
+	 */
+	static private String thumbnailType (final String documentType, final String acceptHeader) {
+		final List<String> candidateTypes = new ArrayList<>(FALLBACK_TYPES.length + 1);
+		if (ImageIO.getImageWritersByMIMEType(documentType).hasNext()) candidateTypes.add(documentType);
+		for (final String type : FALLBACK_TYPES)
+			if (!type.equals(documentType) && ImageIO.getImageWritersByMIMEType(type).hasNext()) candidateTypes.add(type);
+
+		return AcceptHeader.valueOf(acceptHeader).select(candidateTypes);
+	}
+
+
+	/**
+	 * Returns a copy of the given image scaled down to fit within a square of the given size,
+	 * maintaining it's aspect ratio. Large reductions are performed in multiple halving steps,
+	 * which avoids the aliasing of single-step bilinear interpolation.
+	 * @param image the image
+	 * @param size the maximum image width and height in pixels
+	 * @param alpha whether or not the scaled image shall retain an alpha channel
+	 * @return the scaled image
+	 */
+	static private BufferedImage scale (BufferedImage image, final int size, final boolean alpha) {
+		final double factor = Math.min(1.0, Math.min((double) size / image.getWidth(), (double) size / image.getHeight()));
+		final int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+		final int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+		final int imageType = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+		do {
+			final int width = Math.max(targetWidth, image.getWidth() / 2);
+			final int height = Math.max(targetHeight, image.getHeight() / 2);
+			final BufferedImage scaledImage = new BufferedImage(width, height, imageType);
+			final Graphics2D graphics = scaledImage.createGraphics();
+			try {
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				graphics.drawImage(image, 0, 0, width, height, null);
+			} finally {
+				graphics.dispose();
+			}
+			image = scaledImage;
+		} while (image.getWidth() > targetWidth | image.getHeight() > targetHeight);
+
+		return image;
+	}
+
+
+	/**
+	 * Returns the given image encoded using the given content type.
+	 * @param image the image
+	 * @param type the content type
+	 * @return the encoded image
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private byte[] encode (final BufferedImage image, final String type) throws IOException {
+		final ImageWriter writer = ImageIO.getImageWritersByMIMEType(type).next();
+		final ByteArrayOutputStream byteSink = new ByteArrayOutputStream();
+		try (ImageOutputStream imageSink = ImageIO.createImageOutputStream(byteSink)) {
+			writer.setOutput(imageSink);
+			writer.write(image);
+		} finally {
+			writer.dispose();
+		}
+
+		return byteSink.toByteArray();
+	}
+
+
+	/**
+	 * Returns an input stream reading the remaining content of the given buffer.
+	 * @param buffer the buffer
+	 * @return the input stream
+	 */
+	static private InputStream inputStream (final ByteBuffer buffer) {
+		return new InputStream() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			public int read () {
+				return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+			}
+
+
+			/**
+			 * {@inheritDoc}
+			 */
+			public int read (final byte[] bytes, final int offset, final int length) {
+				if (length == 0) return 0;
+				if (!buffer.hasRemaining()) return -1;
+
+				final int bytesRead = Math.min(length, buffer.remaining());
+				buffer.get(bytes, offset, bytesRead);
+				return bytesRead;
+			}
+		};
+	}
+}
\ No newline at end of file
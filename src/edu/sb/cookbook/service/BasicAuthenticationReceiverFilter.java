@@ -1,21 +1,39 @@
 package edu.sb.cookbook.service;
 
+import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
 import static javax.ws.rs.core.HttpHeaders.WWW_AUTHENTICATE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
-// import java.util.Base64;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Priority;
+import javax.persistence.EntityManager;
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 import edu.sb.tool.Copyright;
+import edu.sb.tool.ExpiringCache;
+import edu.sb.tool.HashCode;
+import edu.sb.tool.HashCodes;
+import edu.sb.tool.RestJpaLifecycleProvider;
 
 
 /**
  * JAX-RS filter provider that performs HTTP "basic" authentication on any REST service request. This aspect-oriented
- * design swaps "Authorization" headers for "Requester-Identity" during authentication.
+ * design swaps "Authorization" headers for "Requester-Identity" and "Requester-Group" during authentication.
+ * Successful authentications are cached for a limited time, keyed by the SHA2-256 hash of the "Authorization" header,
+ * which reduces the authentication of repeated requests to a single map lookup. Note that cached authentications must
+ * be invalidated whenever a person's email address or password hash is modified, see {@link #invalidate(long)}. As this
+ * model does not define a person entity, nor a person service, this obligation falls upon whichever service or tool
+ * modifies the {@code cookbook.Person} table within the same JVM; modifications made by other means are picked up
+ * once cached authentications expire.
  */
 @Provider
 @Priority(Priorities.AUTHENTICATION)
@@ -27,39 +45,141 @@ public class BasicAuthenticationReceiverFilter implements ContainerRequestFilter
 	 */
 	static public final String REQUESTER_IDENTITY = "X-Requester-Identity";
 
+	/**
+	 * HTTP request header for the authenticated requester's group.
+	 */
+	static public final String REQUESTER_GROUP = "X-Requester-Group";
+
+	static private final String PERSISTENCE_UNIT_NAME = "local_database";
+	static private final String QUERY_PERSON = "SELECT personIdentity, passwordHash, groupAlias FROM cookbook.Person WHERE email = ?1";
+	static private final String BASIC_PREFIX = "Basic ";
+	static private final int CACHE_CAPACITY = 10000;
+	static private final long CACHE_TIME_TO_LIVE = 300;
+	static private final ExpiringCache<String,Requester> REQUESTER_CACHE = new ExpiringCache<>(CACHE_CAPACITY, CACHE_TIME_TO_LIVE, TimeUnit.SECONDS);
+	static private final AtomicLong INVALIDATION_EPOCH = new AtomicLong();
+
+
+	/**
+	 * Invalidates all cached authentications of the person with the given identity. This operation must be called
+	 * whenever a person's email address or password hash is modified, or a person is removed, and only after the
+	 * modifying transaction has been committed. Authentications in progress concurrently are prevented from caching
+	 * their possibly outdated result.
+	 * @param personIdentity the person identity
+	 */
+	static public void invalidate (final long personIdentity) {
+		INVALIDATION_EPOCH.incrementAndGet();
+		REQUESTER_CACHE.removeIf(requester -> requester.identity == personIdentity);
+	}
+
+
+	/**
+	 * Invalidates all cached authentications, including the results of authentications in progress concurrently.
+	 */
+	static public void invalidateAll () {
+		INVALIDATION_EPOCH.incrementAndGet();
+		REQUESTER_CACHE.clear();
+	}
+
 
 	/**
 	 * Performs HTTP "basic" authentication by calculating a password hash from the password contained in the request's
 	 * "Authorization" header, and comparing it to the one stored in the person matching said header's username. The
-	 * "Authorization" header is consumed in any case, and upon success replaced by a new "Requester-Identity" header that
-	 * contains the authenticated person's identity. The filter chain is aborted in case of a problem.
+	 * "Authorization" header is consumed in any case, and upon success replaced by new "Requester-Identity" and
+	 * "Requester-Group" headers that contain the authenticated person's identity and group. Successful authentications
+	 * are cached, and subsequent requests with the same "Authorization" header are authenticated from said cache. The
+	 * invalidation epoch is captured before the database is queried, and an authentication is only cached if no
+	 * invalidation happened in the meantime; an invalidation racing with the insertion itself either removes the entry,
+	 * or is detected by checking the epoch again afterwards. The filter chain is aborted in case of a problem.
 	 * @param requestContext {@inheritDoc}
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws ClientErrorException (400) if the "Authorization" header is malformed, or if there is a pre-existing
-	 *         "Requester-Identity" header
+	 *         "Requester-Identity" or "Requester-Group" header
 	 */
 	public void filter (final ContainerRequestContext requestContext) throws NullPointerException, ClientErrorException {
-		// TODO:
-		// - Throw a ClientErrorException(Status.BAD_REQUEST) if the given context's headers map already contains a
-		//   "Requester-Identity" key, in order to prevent spoofing attacks.
-		// - Remove the "Authorization" header from said map and store the first of it's values in a variable
-		//   "textCredentials", or null if the header value is either null or empty.
-		// - if the "textCredentials" variable is not null, parse it programmatically using Base64.getDecoder().decode(),
-		//   use the resulting byte array to create a new String instance, and store the resulting <email>:<password>
-		//   combination in variable "credentials". 
-		// - Perform the PQL-Query "select p from Person as p where p.email = :email"), using the credentials email
-		//   address part. Note that this query will go to the second level cache before hitting the database if the
-		//   Person#email field is annotated using @CacheIndex(updateable = true)! 
-		// - if the resulting people list contains exactly one element, calculate the hex-string representation
-		//   (i.e. 2 digits per byte) of the SHA2-256 hash code of the credential's password part using
-		//   HashCodes.sha2HashText(256, text).
-		// - if this hash representation is equal to queried person's password hash, add a new "Requester-Identity"
-		//   header to the request headers, using the person's identity (converted to String) as value, and return
-		//   from this method.
-		// - in all other cases, abort the request using requestContext.abortWith() in order to challenging the client
-		//   to provide HTTP Basic credentials (i.e. status code 401, and "WWW-Authenticate" header value "Basic").
-		//   Note that the alternative of throwing NotAuthorizedException("Basic") comes with the disadvantage that
-		//   failed authentication attempts clutter the server log with stack traces.
+		final MultivaluedMap<String,String> headers = requestContext.getHeaders();
+		if (headers.containsKey(REQUESTER_IDENTITY) | headers.containsKey(REQUESTER_GROUP)) throw new ClientErrorException(BAD_REQUEST);
+
+		final List<String> headerValues = headers.remove(AUTHORIZATION);
+		final String textCredentials = headerValues == null || headerValues.isEmpty() ? null : headerValues.get(0);
+		if (textCredentials != null && !textCredentials.isEmpty()) {
+			final String cacheKey = HashCodes.sha2HashText(256, textCredentials);
+			Requester requester = REQUESTER_CACHE.get(cacheKey);
+			if (requester == null) {
+				final long epoch = INVALIDATION_EPOCH.get();
+				requester = authenticate(requestContext, textCredentials);
+				if (requester != null && INVALIDATION_EPOCH.get() == epoch) {
+					REQUESTER_CACHE.put(cacheKey, requester);
+					if (INVALIDATION_EPOCH.get() != epoch) REQUESTER_CACHE.remove(cacheKey);
+				}
+			}
+
+			if (requester != null) {
+				headers.putSingle(REQUESTER_IDENTITY, Long.toString(requester.identity));
+				headers.putSingle(REQUESTER_GROUP, requester.group);
+				return;
+			}
+		}
+
 		requestContext.abortWith(Response.status(UNAUTHORIZED).header(WWW_AUTHENTICATE, "Basic").build());
 	}
-}
\ No newline at end of file
+
+
+	/**
+	 * Authenticates the given credentials against the database. Note that the person is queried natively, as this
+	 * model does not define a person entity.
+	 * @param requestContext the request context
+	 * @param textCredentials the "Authorization" header value
+	 * @return the authenticated requester, or {@code null} if authentication fails
+	 * @throws ClientErrorException (400) if the given credentials are malformed
+	 */
+	static private Requester authenticate (final ContainerRequestContext requestContext, final String textCredentials) throws ClientErrorException {
+		if (!textCredentials.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length())) throw new ClientErrorException(BAD_REQUEST);
+
+		final String credentials;
+		try {
+			credentials = new String(Base64.getDecoder().decode(textCredentials.substring(BASIC_PREFIX.length()).trim()), StandardCharsets.UTF_8);
+		} catch (final IllegalArgumentException exception) {
+			throw new ClientErrorException(BAD_REQUEST);
+		}
+
+		final int colonPosition = credentials.indexOf(':');
+		if (colonPosition == -1) throw new ClientErrorException(BAD_REQUEST);
+		final String email = credentials.substring(0, colonPosition);
+		final String password = credentials.substring(colonPosition + 1);
+
+		final EntityManager entityManager = RestJpaLifecycleProvider.entityManager(PERSISTENCE_UNIT_NAME, requestContext);
+		@SuppressWarnings("unchecked")
+		final List<Object[]> people = entityManager
+			.createNativeQuery(QUERY_PERSON)
+			.setParameter(1, email)
+			.getResultList();
+		if (people.size() != 1) return null;
+
+		final Object[] person = people.get(0);
+		final HashCode passwordHash = HashCodes.sha2Hash(256, password);
+		if (!passwordHash.equals(new HashCode((byte[]) person[1]))) return null;
+
+		return new Requester(((Number) person[0]).longValue(), person[2].toString());
+	}
+
+
+
+	/**
+	 * Instances of this class model authenticated requesters.
+	 */
+	static private class Requester {
+		private final long identity;
+		private final String group;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param identity the person identity
+		 * @param group the person group
+		 */
+		public Requester (final long identity, final String group) {
+			this.identity = identity;
+			this.group = group;
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package edu.sb.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Instances of this immutable class model parsed HTTP "Accept" headers, as sequences of media
+ * ranges with quality values (q-values), see RFC 7231 section 5.3.2. Parsed headers are cached
+ * by their text, given that clients tend to send the same few headers over and over again; this
+ * reduces content negotiation to a cache lookup followed by simple media range comparisons.
+ * Note that media range parameters other than the quality value are ignored.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public final class AcceptHeader {
+	static private final ExpiringCache<String,AcceptHeader> CACHE = new ExpiringCache<>(256, 1, TimeUnit.HOURS);
+	static private final AcceptHeader ANY = new AcceptHeader(new MediaRange[] { new MediaRange("*", "*", 1) });
+	static private final Comparator<MediaRange> RANGE_COMPARATOR = Comparator
+		.comparingInt((MediaRange range) -> range.specificity).reversed()
+		.thenComparing(Comparator.comparingDouble((MediaRange range) -> range.quality).reversed());
+
+	private final MediaRange[] ranges;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param ranges the media ranges, ordered by descending specificity and quality
+	 */
+	private AcceptHeader (final MediaRange[] ranges) {
+		this.ranges = ranges;
+	}
+
+
+	/**
+	 * Returns the parsed representation of the given "Accept" header value, which is looked up
+	 * within a bounded cache first. A blank value accepts any content type, as if the header
+	 * was absent; malformed media ranges are skipped.
+	 * @param text the "Accept" header value
+	 * @return the parsed "Accept" header
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public AcceptHeader valueOf (final String text) throws NullPointerException {
+		AcceptHeader header = CACHE.get(text);
+		if (header == null) {
+			header = parse(text);
+			CACHE.put(text, header);
+		}
+
+		return header;
+	}
+
+
+	/**
+	 * Returns the quality value associated with the given content type, which is determined by
+	 * the most specific media range matching it.
+	 * @param contentType the content type, optionally including parameters
+	 * @return the quality value within range [0, 1], with zero meaning not acceptable
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public float quality (final String contentType) throws NullPointerException {
+		final int parameterPosition = contentType.indexOf(';');
+		final int end = parameterPosition == -1 ? contentType.length() : parameterPosition;
+		final int separatorPosition = contentType.indexOf('/');
+		if (separatorPosition <= 0 | separatorPosition >= end - 1) return 0;
+
+		for (final MediaRange range : this.ranges)
+			if (range.matches(contentType, separatorPosition, end)) return range.quality;
+
+		return 0;
+	}
+
+
+	/**
+	 * Returns whether or not the given content type is acceptable, i.e. has a quality value
+	 * greater than zero.
+	 * @param contentType the content type, optionally including parameters
+	 * @return {@code true} if the given content type is acceptable, {@code false} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public boolean isAcceptable (final String contentType) throws NullPointerException {
+		return this.quality(contentType) > 0;
+	}
+
+
+	/**
+	 * Returns the best match among the given producible content types, i.e. the one with the highest
+	 * quality value. Ties are resolved in favor of the content type given first, which allows callers
+	 * to express their own preferences by ordering.
+	 * @param contentTypes the producible content types
+	 * @return the best matching content type, or {@code null} if none is acceptable
+	 * @throws NullPointerException if the given argument, or any of it's elements, is {@code null}
+	 */
+	public String select (final String... contentTypes) throws NullPointerException {
+		return this.select(Arrays.asList(contentTypes));
+	}
+
+
+	/**
+	 * Returns the best match among the given producible content types, i.e. the one with the highest
+	 * quality value. Ties are resolved in favor of the content type given first, which allows callers
+	 * to express their own preferences by ordering.
+	 * @param contentTypes the producible content types
+	 * @return the best matching content type, or {@code null} if none is acceptable
+	 * @throws NullPointerException if the given argument, or any of it's elements, is {@code null}
+	 */
+	public String select (final Iterable<String> contentTypes) throws NullPointerException {
+		String bestType = null;
+		float bestQuality = 0;
+		for (final String contentType : contentTypes) {
+			final float quality = this.quality(contentType);
+			if (quality > bestQuality) {
+				bestType = contentType;
+				bestQuality = quality;
+			}
+		}
+
+		return bestType;
+	}
+
+
+	/**
+	 * Returns the text representation of the media ranges, ordered by descending specificity and
+	 * quality.
+	 * @return the text representation
+	 */
+	@Override
+	public String toString () {
+		final StringBuilder builder = new StringBuilder();
+		for (final MediaRange range : this.ranges) {
+			if (builder.length() > 0) builder.append(", ");
+			builder.append(range.type).append('/').append(range.subtype).append(";q=").append(range.quality);
+		}
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Parses the given "Accept" header value.
+	 * @param text the "Accept" header value
+	 * @return the parsed "Accept" header
+	 */
+	static private AcceptHeader parse (final String text) {
+		if (text.isBlank()) return ANY;
+
+		final List<MediaRange> ranges = new ArrayList<>();
+		for (int start = 0, end; start < text.length(); start = end + 1) {
+			end = text.indexOf(',', start);
+			if (end == -1) end = text.length();
+
+			final MediaRange range = MediaRange.parse(text, start, end);
+			if (range != null) ranges.add(range);
+		}
+
+		ranges.sort(RANGE_COMPARATOR);
+		return new AcceptHeader(ranges.toArray(MediaRange[]::new));
+	}
+
+
+
+	/**
+	 * Instances of this immutable class model media ranges, with their type and subtype in lower
+	 * case, and the wildcard {@code *} for any.
+	 */
+	static private class MediaRange {
+		private final String type;
+		private final String subtype;
+		private final float quality;
+		private final int specificity;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param type the type, or {@code *} for any
+		 * @param subtype the subtype, or {@code *} for any
+		 * @param quality the quality value
+		 */
+		public MediaRange (final String type, final String subtype, final float quality) {
+			this.type = type;
+			this.subtype = subtype;
+			this.quality = quality;
+			this.specificity = type.equals("*") ? 0 : (subtype.equals("*") ? 1 : 2);
+		}
+
+
+		/**
+		 * Returns whether or not this media range matches the given content type region.
+		 * @param contentType the content type
+		 * @param separatorPosition the position of the type/subtype separator
+		 * @param end the end position of the subtype, exclusive
+		 * @return {@code true} if this range matches, {@code false} otherwise
+		 */
+		public boolean matches (final String contentType, final int separatorPosition, final int end) {
+			if (this.specificity == 0) return true;
+			if (this.type.length() != separatorPosition || !contentType.regionMatches(true, 0, this.type, 0, separatorPosition)) return false;
+			if (this.specificity == 1) return true;
+
+			final int subtypeLength = end - separatorPosition - 1;
+			return this.subtype.length() == subtypeLength && contentType.regionMatches(true, separatorPosition + 1, this.subtype, 0, subtypeLength);
+		}
+
+
+		/**
+		 * Parses a media range from the given text region, like {@code text/html;level=1;q=0.5}.
+		 * @param text the text
+		 * @param start the start position, inclusive
+		 * @param end the end position, exclusive
+		 * @return the media range, or {@code null} if the given text region is malformed
+		 */
+		static public MediaRange parse (final String text, final int start, final int end) {
+			int parameterPosition = text.indexOf(';', start);
+			if (parameterPosition == -1 | parameterPosition > end) parameterPosition = end;
+
+			final String mediaType = text.substring(start, parameterPosition).trim().toLowerCase(Locale.ROOT);
+			final int separatorPosition = mediaType.indexOf('/');
+			if (separatorPosition <= 0 | separatorPosition == mediaType.length() - 1) return null;
+
+			final String type = mediaType.substring(0, separatorPosition).trim();
+			final String subtype = mediaType.substring(separatorPosition + 1).trim();
+			if (type.equals("*") & !subtype.equals("*")) return null;
+
+			float quality = 1;
+			for (int position = parameterPosition; position < end; ) {
+				int nextPosition = text.indexOf(';', position + 1);
+				if (nextPosition == -1 | nextPosition > end) nextPosition = end;
+
+				final String parameter = text.substring(position + 1, nextPosition).trim();
+				if (parameter.length() > 1 && (parameter.charAt(0) == 'q' | parameter.charAt(0) == 'Q') && parameter.charAt(1) == '=') {
+					try {
+						quality = Float.parseFloat(parameter.substring(2).trim());
+					} catch (final NumberFormatException exception) {
+						return null;
+					}
+					if (!(quality >= 0 & quality <= 1)) return null;
+					break;
+				}
+
+				position = nextPosition;
+			}
+
+			return new MediaRange(type, subtype, quality);
+		}
+	}
+}
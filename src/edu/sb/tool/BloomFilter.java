@@ -0,0 +1,128 @@
+package edu.sb.tool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Thread-safe and lock-free Bloom filter for textual keys. Instances answer whether a key
+ * might have been added before, or definitely has not: false positives are possible with
+ * the probability chosen upon construction, false negatives are not. Keys are hashed
+ * twice using FNV-1a variants, and the bit positions are derived from both hashes using
+ * double hashing.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class BloomFilter {
+	static private final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	static private final long FNV_PRIME = 0x100000001b3L;
+	static private final long ALTERNATE_OFFSET_BASIS = 0x84222325cbf29ce4L;
+	static private final double LN2 = Math.log(2);
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+
+
+	/**
+	 * Initializes a new instance sized for the given number of keys and false positive probability.
+	 * @param expectedKeyCount the expected number of keys
+	 * @param falsePositiveProbability the false positive probability once the expected number
+	 *        of keys has been added, within range ]0, 1[
+	 * @throws IllegalArgumentException if the given key count is negative, or if the given
+	 *         probability is out of range
+	 */
+	public BloomFilter (final long expectedKeyCount, final double falsePositiveProbability) throws IllegalArgumentException {
+		if (expectedKeyCount < 0 | !(falsePositiveProbability > 0 & falsePositiveProbability < 1)) throw new IllegalArgumentException();
+
+		final long keyCount = Math.max(1, expectedKeyCount);
+		final long bitCount = Math.max(64, (long) Math.ceil(-keyCount * Math.log(falsePositiveProbability) / (LN2 * LN2)));
+		final long wordCount = (bitCount + 63) >>> 6;
+		if (wordCount > Integer.MAX_VALUE) throw new IllegalArgumentException();
+
+		this.bits = new AtomicLongArray((int) wordCount);
+		this.bitCount = wordCount << 6;
+		this.hashCount = (int) Math.max(1, Math.round((double) this.bitCount / keyCount * LN2));
+	}
+
+
+	/**
+	 * Returns the number of bits.
+	 * @return the bit count
+	 */
+	public long getBitCount () {
+		return this.bitCount;
+	}
+
+
+	/**
+	 * Returns the number of hash functions applied per key.
+	 * @return the hash function count
+	 */
+	public int getHashCount () {
+		return this.hashCount;
+	}
+
+
+	/**
+	 * Adds the given key.
+	 * @param key the key
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public void add (final CharSequence key) throws NullPointerException {
+		final long hash1 = hash(key, FNV_OFFSET_BASIS);
+		final long hash2 = hash(key, ALTERNATE_OFFSET_BASIS) | 1;
+
+		for (int index = 0; index < this.hashCount; ++index) {
+			final long position = Long.remainderUnsigned(hash1 + index * hash2, this.bitCount);
+			final int wordIndex = (int) (position >>> 6);
+			final long mask = 1L << position;
+
+			long word;
+			do {
+				word = this.bits.get(wordIndex);
+				if ((word & mask) != 0) break;
+			} while (!this.bits.compareAndSet(wordIndex, word, word | mask));
+		}
+	}
+
+
+	/**
+	 * Returns whether or not the given key might have been added before.
+	 * @param key the key
+	 * @return {@code false} if the given key has definitely not been added,
+	 *         {@code true} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public boolean mightContain (final CharSequence key) throws NullPointerException {
+		final long hash1 = hash(key, FNV_OFFSET_BASIS);
+		final long hash2 = hash(key, ALTERNATE_OFFSET_BASIS) | 1;
+
+		for (int index = 0; index < this.hashCount; ++index) {
+			final long position = Long.remainderUnsigned(hash1 + index * hash2, this.bitCount);
+			if ((this.bits.get((int) (position >>> 6)) & (1L << position)) == 0) return false;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Returns the 64-bit FNV-1a hash of the given key, using the given offset basis,
+	 * and followed by a final avalanche step.
+	 * @param key the key
+	 * @param offsetBasis the offset basis
+	 * @return the hash
+	 * @throws NullPointerException if the given key is {@code null}
+	 */
+	static private long hash (final CharSequence key, final long offsetBasis) throws NullPointerException {
+		long hash = offsetBasis;
+		for (int index = 0; index < key.length(); ++index) {
+			hash ^= key.charAt(index);
+			hash *= FNV_PRIME;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
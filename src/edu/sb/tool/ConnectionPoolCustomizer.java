@@ -0,0 +1,36 @@
+package edu.sb.tool;
+
+import java.util.ArrayList;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+
+
+/**
+ * EclipseLink session customizer that replaces a server session's internal connection pools with
+ * {@link MeteredConnectionPool} instances using the same configuration, and enables connection
+ * validation after communication failures. Register it within {@code persistence.xml} using the
+ * {@code eclipselink.session.customizer} property; pool sizes and wait timeouts are configured
+ * using the standard {@code eclipselink.connection-pool.*} properties. Note that shared read
+ * connection pools, and external (data source) pools, are left untouched.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class ConnectionPoolCustomizer implements SessionCustomizer {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void customize (final Session session) {
+		if (!(session instanceof ServerSession)) return;
+		final ServerSession serverSession = (ServerSession) session;
+		serverSession.getLogin().setConnectionHealthValidatedOnError(true);
+
+		for (final ConnectionPool pool : new ArrayList<>(serverSession.getConnectionPools().values()))
+			if (pool.getClass() == ConnectionPool.class) serverSession.addConnectionPool(new MeteredConnectionPool(pool, serverSession));
+
+		final ConnectionPool readPool = serverSession.getReadConnectionPool();
+		if (readPool != null && readPool.getClass() == ConnectionPool.class) serverSession.setReadConnectionPool(new MeteredConnectionPool(readPool, serverSession));
+	}
+}
@@ -0,0 +1,87 @@
+package edu.sb.tool;
+
+
+/**
+ * Management interface exposing live metrics of JDBC connection pools via JMX, like the number
+ * of active and idle connections, the number of threads waiting for a connection, the time spent
+ * acquiring connections, and the number of acquisition timeouts.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public interface ConnectionPoolMXBean {
+
+	/**
+	 * Returns the pool name.
+	 * @return the pool name
+	 */
+	String getName ();
+
+
+	/**
+	 * Returns the minimum number of connections.
+	 * @return the number of connections kept open while idle
+	 */
+	int getMinNumberOfConnections ();
+
+
+	/**
+	 * Returns the maximum number of connections.
+	 * @return the maximum number of simultaneously open connections
+	 */
+	int getMaxNumberOfConnections ();
+
+
+	/**
+	 * Returns the acquisition timeout.
+	 * @return the maximum time in milliseconds a thread waits for a connection, or zero for unlimited
+	 */
+	int getWaitTimeout ();
+
+
+	/**
+	 * Returns the number of active connections.
+	 * @return the number of connections currently in use
+	 */
+	int getActiveConnections ();
+
+
+	/**
+	 * Returns the number of idle connections.
+	 * @return the number of open connections currently available
+	 */
+	int getIdleConnections ();
+
+
+	/**
+	 * Returns the number of waiting threads.
+	 * @return the number of threads currently waiting for a connection
+	 */
+	int getWaitingThreads ();
+
+
+	/**
+	 * Returns the number of acquisitions.
+	 * @return the number of successful connection acquisitions since startup
+	 */
+	long getAcquisitionCount ();
+
+
+	/**
+	 * Returns the number of acquisition timeouts.
+	 * @return the number of connection acquisitions that failed because no connection became available in time
+	 */
+	long getAcquisitionTimeoutCount ();
+
+
+	/**
+	 * Returns the accumulated acquisition time.
+	 * @return the time in milliseconds spent acquiring connections since startup, including waiting
+	 */
+	long getAcquisitionTime ();
+
+
+	/**
+	 * Returns the maximum acquisition time.
+	 * @return the longest time in milliseconds a single connection acquisition took since startup
+	 */
+	long getMaxAcquisitionTime ();
+}
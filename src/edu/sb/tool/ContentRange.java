@@ -0,0 +1,167 @@
+package edu.sb.tool;
+
+import static javax.ws.rs.core.Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+
+
+/**
+ * Instances of this class model single byte ranges of content, as requested by HTTP "Range"
+ * headers and answered by HTTP "Content-Range" headers. Multi-range requests are deliberately
+ * not supported; they are treated as requests for the complete content, which is compliant
+ * with RFC 7233.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class ContentRange {
+
+	/**
+	 * HTTP request header for byte range requests.
+	 */
+	static public final String RANGE = "Range";
+
+	/**
+	 * HTTP request header for conditional byte range requests.
+	 */
+	static public final String IF_RANGE = "If-Range";
+
+	/**
+	 * HTTP response header for byte range responses.
+	 */
+	static public final String CONTENT_RANGE = "Content-Range";
+
+	/**
+	 * HTTP response header for byte range support announcements.
+	 */
+	static public final String ACCEPT_RANGES = "Accept-Ranges";
+
+	/**
+	 * The only supported range unit.
+	 */
+	static public final String BYTES = "bytes";
+
+	private final long offset;
+	private final long length;
+	private final long totalLength;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param offset the offset of the range's first byte
+	 * @param length the range length
+	 * @param totalLength the total content length
+	 * @throws IllegalArgumentException if any of the given arguments is negative,
+	 *         or if the range exceeds the total content length
+	 */
+	public ContentRange (final long offset, final long length, final long totalLength) throws IllegalArgumentException {
+		if (offset < 0 | length < 0 | totalLength < 0 | offset > totalLength - length) throw new IllegalArgumentException();
+
+		this.offset = offset;
+		this.length = length;
+		this.totalLength = totalLength;
+	}
+
+
+	/**
+	 * Returns the content range requested by the given HTTP "Range" and "If-Range" headers. The
+	 * result is {@code null} if the complete content is to be transferred, i.e. if there is no
+	 * "Range" header, if said header is not a single byte range, or if the "If-Range" header's
+	 * validator does not match the given entity tag.
+	 * @param rangeHeader the "Range" header value, or {@code null} for none
+	 * @param ifRangeHeader the "If-Range" header value, or {@code null} for none
+	 * @param entityTag the current (unquoted) entity tag of the content
+	 * @param totalLength the total content length
+	 * @return the content range, or {@code null} for the complete content
+	 * @throws NullPointerException if the given entity tag is {@code null}
+	 * @throws IllegalArgumentException if the given total length is negative
+	 * @throws ClientErrorException (416) if the requested byte range cannot be satisfied
+	 */
+	static public ContentRange parse (final String rangeHeader, final String ifRangeHeader, final String entityTag, final long totalLength) throws NullPointerException, IllegalArgumentException, ClientErrorException {
+		if (entityTag == null) throw new NullPointerException();
+		if (totalLength < 0) throw new IllegalArgumentException();
+		if (rangeHeader == null) return null;
+		if (ifRangeHeader != null && !ifRangeHeader.trim().equals("\"" + entityTag + "\"")) return null;
+
+		final String text = rangeHeader.trim();
+		final int equalsPosition = text.indexOf('=');
+		if (equalsPosition == -1 || !text.substring(0, equalsPosition).trim().equalsIgnoreCase(BYTES)) return null;
+
+		final String range = text.substring(equalsPosition + 1).trim();
+		final int dashPosition = range.indexOf('-');
+		if (dashPosition == -1 | range.indexOf(',') != -1) return null;
+
+		final long first, last;
+		try {
+			if (dashPosition == 0) {
+				final long suffixLength = Long.parseLong(range.substring(1).trim());
+				if (suffixLength == 0) throw unsatisfiable(totalLength);
+				first = Math.max(0, totalLength - suffixLength);
+				last = totalLength - 1;
+			} else {
+				first = Long.parseLong(range.substring(0, dashPosition).trim());
+				last = dashPosition == range.length() - 1
+					? totalLength - 1
+					: Math.min(totalLength - 1, Long.parseLong(range.substring(dashPosition + 1).trim()));
+			}
+		} catch (final NumberFormatException exception) {
+			return null;
+		}
+
+		if (first < 0 | first > last) {
+			if (first >= totalLength) throw unsatisfiable(totalLength);
+			return null;
+		}
+
+		return new ContentRange(first, last - first + 1, totalLength);
+	}
+
+
+	/**
+	 * Returns the offset.
+	 * @return the offset of the range's first byte
+	 */
+	public long getOffset () {
+		return this.offset;
+	}
+
+
+	/**
+	 * Returns the length.
+	 * @return the range length
+	 */
+	public long getLength () {
+		return this.length;
+	}
+
+
+	/**
+	 * Returns the total length.
+	 * @return the total content length
+	 */
+	public long getTotalLength () {
+		return this.totalLength;
+	}
+
+
+	/**
+	 * Returns the HTTP "Content-Range" header value representing this range.
+	 * @return the header value
+	 */
+	@Override
+	public String toString () {
+		return BYTES + ' ' + this.offset + '-' + (this.offset + this.length - 1) + '/' + this.totalLength;
+	}
+
+
+	/**
+	 * Returns a new exception signaling an unsatisfiable range.
+	 * @param totalLength the total content length
+	 * @return the exception created
+	 */
+	static private ClientErrorException unsatisfiable (final long totalLength) {
+		final Response response = Response
+			.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+			.header(CONTENT_RANGE, BYTES + " */" + totalLength)
+			.build();
+		return new ClientErrorException(response);
+	}
+}
\ No newline at end of file
@@ -1,11 +1,19 @@
 package edu.sb.tool;
 
+import java.util.Locale;
+import java.util.Set;
+
 
 /**
  * Facade for content type (MIME type) related operations.
  */
 @Copyright(year = 2023, holders = "Sascha Baumeister")
 public class ContentTypes {
+	static private final Set<String> COMPRESSIBLE_TYPES = Set.of(
+		"application/json", "application/xml", "application/javascript", "application/x-javascript", "application/ecmascript",
+		"application/xhtml+xml", "application/rtf", "application/sql", "application/x-yaml", "application/x-sh",
+		"application/postscript", "image/svg+xml", "image/bmp", "image/x-icon", "image/vnd.microsoft.icon"
+	);
 
 	/**
 	 * Prevents external instantiation.
@@ -15,25 +23,47 @@ public class ContentTypes {
 
 	/**
 	 * Returns whether or not the given content type is compatible to at least one of the given
-	 * acceptable types.
+	 * acceptable types with a quality value greater than zero.
 	 * @param contentType the content type
 	 * @param acceptHeader the accept header value
 	 * @return true if the given content type is compatible to at least one of the types
 	 * 		contained within the given accept header
 	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @see AcceptHeader
 	 */
 	static public boolean isAcceptable (final String contentType, final String acceptHeader) throws NullPointerException {
-		for (String acceptableType : acceptHeader.trim().split("\\s*,\\s*")) {
-			acceptableType = acceptableType.trim();
-			if (acceptableType.contains(";")) acceptableType = acceptableType.split("\\s*;\\s*")[0];
+		return AcceptHeader.valueOf(acceptHeader).isAcceptable(contentType);
+	}
 
-			if (acceptableType.equals(contentType) || acceptableType.equals("*/*")) return true;
-			if (acceptableType.length() < 2) continue;
 
-			if (acceptableType.startsWith("*/") && contentType.endsWith(acceptableType.substring(1))) return true;
-			if (acceptableType.endsWith("/*") && contentType.startsWith(acceptableType.substring(0, acceptableType.length() - 1))) return true;
-		}
+	/**
+	 * Returns the best match among the given producible content types according to the given
+	 * accept header, based on quality values and media range specificity. Ties are resolved in
+	 * favor of the content type given first.
+	 * @param acceptHeader the accept header value
+	 * @param contentTypes the producible content types
+	 * @return the best matching content type, or {@code null} if none is acceptable
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @see AcceptHeader
+	 */
+	static public String bestMatch (final String acceptHeader, final String... contentTypes) throws NullPointerException {
+		return AcceptHeader.valueOf(acceptHeader).select(contentTypes);
+	}
+
+
+	/**
+	 * Returns whether or not content of the given type is worth compressing. This is the case for
+	 * textual types, structured text types like JSON, XML or SVG, and uncompressed image formats.
+	 * Types whose content is already compressed (like JPEG, PNG, video or archives), and unknown
+	 * types, are considered incompressible.
+	 * @param contentType the content type, optionally including parameters
+	 * @return {@code true} if content of the given type should be compressed, {@code false} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public boolean isCompressible (final String contentType) throws NullPointerException {
+		final int parameterPosition = contentType.indexOf(';');
+		final String type = (parameterPosition == -1 ? contentType : contentType.substring(0, parameterPosition)).trim().toLowerCase(Locale.ROOT);
 
-		return false;
+		return type.startsWith("text/") || type.endsWith("+json") || type.endsWith("+xml") || COMPRESSIBLE_TYPES.contains(type);
 	}
 }
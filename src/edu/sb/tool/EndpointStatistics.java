@@ -0,0 +1,179 @@
+package edu.sb.tool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Instances of this class aggregate the persistence statistics of all requests targeting a single
+ * HTTP endpoint. Aggregation is lock-free, which allows concurrent requests to contribute their
+ * statistics without contention.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class EndpointStatistics implements EndpointStatisticsMXBean {
+	private final String name;
+	private final LongAdder requestCount;
+	private final LongAdder queryCount;
+	private final LongAdder rowCount;
+	private final LongAdder cacheHitCount;
+	private final LongAdder cacheMissCount;
+	private final LongAdder queryTime;
+	private final LongAdder statementTime;
+	private final LongAdder flushTime;
+	private final LongAdder commitTime;
+	private final LongAdder lifeTime;
+	private final AtomicLong maxLifeTime;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param name the endpoint name
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public EndpointStatistics (final String name) throws NullPointerException {
+		if (name == null) throw new NullPointerException();
+
+		this.name = name;
+		this.requestCount = new LongAdder();
+		this.queryCount = new LongAdder();
+		this.rowCount = new LongAdder();
+		this.cacheHitCount = new LongAdder();
+		this.cacheMissCount = new LongAdder();
+		this.queryTime = new LongAdder();
+		this.statementTime = new LongAdder();
+		this.flushTime = new LongAdder();
+		this.commitTime = new LongAdder();
+		this.lifeTime = new LongAdder();
+		this.maxLifeTime = new AtomicLong();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName () {
+		return this.name;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getRequestCount () {
+		return this.requestCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getQueryCount () {
+		return this.queryCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getRowCount () {
+		return this.rowCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCacheHitCount () {
+		return this.cacheHitCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCacheMissCount () {
+		return this.cacheMissCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getQueryTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.queryTime.sum());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getStatementTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.statementTime.sum());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getFlushTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.flushTime.sum());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCommitTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.commitTime.sum());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLifeTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.lifeTime.sum());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMaxLifeTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxLifeTime.get());
+	}
+
+
+	/**
+	 * Adds the given request statistics to this aggregate, using their current life time.
+	 * @param statistics the request statistics
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public void add (final PersistenceStatistics statistics) throws NullPointerException {
+		final long lifeTime = statistics.getLifeTime();
+		this.requestCount.increment();
+		this.queryCount.add(statistics.getQueryCount());
+		this.rowCount.add(statistics.getRowCount());
+		this.cacheHitCount.add(statistics.getCacheHitCount());
+		this.cacheMissCount.add(statistics.getCacheMissCount());
+		this.queryTime.add(statistics.getQueryTime());
+		this.statementTime.add(statistics.getStatementTime());
+		this.flushTime.add(statistics.getFlushTime());
+		this.commitTime.add(statistics.getCommitTime());
+		this.lifeTime.add(lifeTime);
+		this.maxLifeTime.accumulateAndGet(lifeTime, Math::max);
+	}
+}
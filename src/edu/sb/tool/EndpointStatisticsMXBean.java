@@ -0,0 +1,93 @@
+package edu.sb.tool;
+
+
+/**
+ * Management interface exposing aggregated persistence statistics of a single HTTP endpoint
+ * via JMX, see {@link PersistenceStatistics}.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public interface EndpointStatisticsMXBean {
+
+	/**
+	 * Returns the endpoint name.
+	 * @return the HTTP method, resource class and resource method name
+	 */
+	String getName ();
+
+
+	/**
+	 * Returns the number of requests.
+	 * @return the number of requests that used an entity manager
+	 */
+	long getRequestCount ();
+
+
+	/**
+	 * Returns the number of queries.
+	 * @return the number of queries executed, including nested ones
+	 */
+	long getQueryCount ();
+
+
+	/**
+	 * Returns the number of rows.
+	 * @return the number of rows read
+	 */
+	long getRowCount ();
+
+
+	/**
+	 * Returns the number of cache hits.
+	 * @return the cache hit count
+	 */
+	long getCacheHitCount ();
+
+
+	/**
+	 * Returns the number of cache misses.
+	 * @return the cache miss count
+	 */
+	long getCacheMissCount ();
+
+
+	/**
+	 * Returns the accumulated query time.
+	 * @return the time in milliseconds spent executing read queries
+	 */
+	long getQueryTime ();
+
+
+	/**
+	 * Returns the accumulated statement time.
+	 * @return the time in milliseconds spent executing SQL statements and fetching rows
+	 */
+	long getStatementTime ();
+
+
+	/**
+	 * Returns the accumulated flush time.
+	 * @return the time in milliseconds spent executing write queries
+	 */
+	long getFlushTime ();
+
+
+	/**
+	 * Returns the accumulated commit time.
+	 * @return the time in milliseconds spent committing transactions
+	 */
+	long getCommitTime ();
+
+
+	/**
+	 * Returns the accumulated entity manager life time.
+	 * @return the time in milliseconds entity managers were open
+	 */
+	long getLifeTime ();
+
+
+	/**
+	 * Returns the maximum entity manager life time.
+	 * @return the longest time in milliseconds a single entity manager was open
+	 */
+	long getMaxLifeTime ();
+}
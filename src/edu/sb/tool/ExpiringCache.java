@@ -0,0 +1,166 @@
+package edu.sb.tool;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+
+/**
+ * Bounded concurrent cache whose entries expire a fixed time after they have been stored. Lookups
+ * and insertions are plain hash map operations; once an insertion causes the cache to exceed it's
+ * capacity, expired entries are evicted, followed by the entries closest to expiry until the cache
+ * is filled to three quarters of it's capacity. This amortizes the cost of eviction over many
+ * insertions, which suits caches that are read far more often than they are written.
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class ExpiringCache<K,V> {
+	private final int capacity;
+	private final long timeToLive;
+	private final Map<K,Entry<V>> entries;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param capacity the maximum number of entries
+	 * @param timeToLive the time to live of each entry
+	 * @param unit the time unit of the time to live
+	 * @throws NullPointerException if the given unit is {@code null}
+	 * @throws IllegalArgumentException if the given capacity or time to live is not strictly positive
+	 */
+	public ExpiringCache (final int capacity, final long timeToLive, final TimeUnit unit) throws NullPointerException, IllegalArgumentException {
+		if (unit == null) throw new NullPointerException();
+		if (capacity <= 0 | timeToLive <= 0) throw new IllegalArgumentException();
+
+		this.capacity = capacity;
+		this.timeToLive = unit.toNanos(timeToLive);
+		this.entries = new ConcurrentHashMap<>();
+	}
+
+
+	/**
+	 * Returns the capacity.
+	 * @return the maximum number of entries
+	 */
+	public int getCapacity () {
+		return this.capacity;
+	}
+
+
+	/**
+	 * Returns the number of entries, including expired ones that have not been evicted yet.
+	 * @return the entry count
+	 */
+	public int size () {
+		return this.entries.size();
+	}
+
+
+	/**
+	 * Returns the value associated with the given key, unless it has expired.
+	 * @param key the key
+	 * @return the value, or {@code null} for none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public V get (final K key) throws NullPointerException {
+		final Entry<V> entry = this.entries.get(key);
+		if (entry == null) return null;
+		if (entry.expiry - System.nanoTime() > 0) return entry.value;
+
+		this.entries.remove(key, entry);
+		return null;
+	}
+
+
+	/**
+	 * Associates the given value with the given key, evicting entries if the capacity is exceeded.
+	 * @param key the key
+	 * @param value the value
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public void put (final K key, final V value) throws NullPointerException {
+		if (value == null) throw new NullPointerException();
+
+		this.entries.put(key, new Entry<>(value, System.nanoTime() + this.timeToLive));
+		if (this.entries.size() > this.capacity) this.evict();
+	}
+
+
+	/**
+	 * Removes the entry associated with the given key.
+	 * @param key the key
+	 * @return the value previously associated with the given key, or {@code null} for none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public V remove (final K key) throws NullPointerException {
+		final Entry<V> entry = this.entries.remove(key);
+		return entry == null ? null : entry.value;
+	}
+
+
+	/**
+	 * Removes all entries whose value matches the given filter.
+	 * @param filter the value filter
+	 * @return {@code true} if any entry has been removed, {@code false} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public boolean removeIf (final Predicate<? super V> filter) throws NullPointerException {
+		if (filter == null) throw new NullPointerException();
+
+		return this.entries.values().removeIf(entry -> filter.test(entry.value));
+	}
+
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear () {
+		this.entries.clear();
+	}
+
+
+	/**
+	 * Evicts expired entries, followed by the entries closest to expiry if
+	 * the cache is still filled to more than three quarters of it's capacity.
+	 */
+	private synchronized void evict () {
+		if (this.entries.size() <= this.capacity) return;
+
+		final long now = System.nanoTime();
+		this.entries.values().removeIf(entry -> entry.expiry - now <= 0);
+
+		final int excess = this.entries.size() - (this.capacity - (this.capacity >>> 2));
+		if (excess > 0) {
+			this.entries.entrySet()
+				.stream()
+				.sorted(Comparator.comparingLong(entry -> entry.getValue().expiry - now))
+				.limit(excess)
+				.forEach(entry -> this.entries.remove(entry.getKey(), entry.getValue()));
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class model cache entries.
+	 * @param <V> the value type
+	 */
+	static private class Entry<V> {
+		private final V value;
+		private final long expiry;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param value the value
+		 * @param expiry the expiry time in nanoseconds, see {@link System#nanoTime()}
+		 */
+		public Entry (final V value, final long expiry) {
+			this.value = value;
+			this.expiry = expiry;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package edu.sb.tool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.ws.rs.core.StreamingOutput;
+
+
+/**
+ * Content-addressed blob store based on a hash-sharded directory tree within the local file system.
+ * Each blob is stored in a file named after it's hexadecimal hash, within two levels of directories
+ * named after said hash's first and second pair of digits, which keeps directory sizes manageable.
+ * Blobs are written atomically and never modified afterwards; reading them is based on file channels,
+ * either by memory-mapping them, or by transferring them to a target channel. Note that transfers
+ * avoid copying content into the heap only if the target is a file or socket channel; response
+ * entity streams are plain output streams, which are served through a bounded heap buffer instead,
+ * i.e. without ever loading a blob as a whole.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class FileBlobStore {
+	private final Path rootDirectory;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param rootDirectory the root directory
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public FileBlobStore (final Path rootDirectory) throws NullPointerException {
+		if (rootDirectory == null) throw new NullPointerException();
+
+		this.rootDirectory = rootDirectory.toAbsolutePath();
+	}
+
+
+	/**
+	 * Returns the root directory.
+	 * @return the root directory
+	 */
+	public Path getRootDirectory () {
+		return this.rootDirectory;
+	}
+
+
+	/**
+	 * Returns the path of the file associated with the given hash.
+	 * @param hash the hexadecimal hash
+	 * @return the blob file path
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is shorter than four characters,
+	 *         or contains characters other than hexadecimal digits
+	 */
+	public Path path (final String hash) throws NullPointerException, IllegalArgumentException {
+		if (hash.length() < 4) throw new IllegalArgumentException(hash);
+		for (int index = 0; index < hash.length(); ++index)
+			if (Character.digit(hash.charAt(index), 16) == -1) throw new IllegalArgumentException(hash);
+
+		return this.rootDirectory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+
+	/**
+	 * Returns whether or not a blob is associated with the given hash.
+	 * @param hash the hexadecimal hash
+	 * @return {@code true} if there is a blob associated with the given hash, {@code false} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 */
+	public boolean contains (final String hash) throws NullPointerException, IllegalArgumentException {
+		return Files.isRegularFile(this.path(hash));
+	}
+
+
+	/**
+	 * Returns the size of the blob associated with the given hash.
+	 * @param hash the hexadecimal hash
+	 * @return the blob size in bytes
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws NoSuchFileException if there is no blob associated with the given hash
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public long size (final String hash) throws NullPointerException, IllegalArgumentException, IOException {
+		return Files.size(this.path(hash));
+	}
+
+
+	/**
+	 * Stores the given content as the blob associated with the given hash, unless there already is one.
+	 * The content is written into a temporary file first, which is subsequently moved into place
+	 * atomically; therefore readers never encounter partially written blobs.
+	 * @param hash the hexadecimal hash
+	 * @param content the content
+	 * @return {@code true} if the blob has been written, {@code false} if it already existed
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean write (final String hash, final byte[] content) throws NullPointerException, IllegalArgumentException, IOException {
+		if (content == null) throw new NullPointerException();
+
+		final Path path = this.path(hash);
+		if (Files.isRegularFile(path)) return false;
+
+		final Path directory = Files.createDirectories(path.getParent());
+		final Path temporaryPath = Files.createTempFile(directory, hash, ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+				for (final ByteBuffer buffer = ByteBuffer.wrap(content); buffer.hasRemaining(); channel.write(buffer));
+				channel.force(false);
+			}
+
+			try {
+				Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+				return true;
+			} catch (final FileAlreadyExistsException exception) {
+				return false;
+			}
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+
+	/**
+	 * Stores the content of the given file as the blob associated with the given hash, unless there
+	 * already is one. The content is transferred into a temporary file first, which is subsequently
+	 * moved into place atomically; said transfer is delegated to
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which allows the operating
+	 * system to copy the content without passing it through the heap. Note that the given file is
+	 * neither modified nor removed.
+	 * @param hash the hexadecimal hash
+	 * @param source the content file path
+	 * @return {@code true} if the blob has been written, {@code false} if it already existed
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean write (final String hash, final Path source) throws NullPointerException, IllegalArgumentException, IOException {
+		if (source == null) throw new NullPointerException();
+
+		final Path path = this.path(hash);
+		if (Files.isRegularFile(path)) return false;
+
+		final Path directory = Files.createDirectories(path.getParent());
+		final Path temporaryPath = Files.createTempFile(directory, hash, ".tmp");
+		try {
+			try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ); FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+				final long size = sourceChannel.size();
+				for (long position = 0; position < size; ) {
+					final long bytesTransferred = sourceChannel.transferTo(position, size - position, channel);
+					if (bytesTransferred <= 0) break;
+					position += bytesTransferred;
+				}
+				channel.force(false);
+			}
+
+			try {
+				Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+				return true;
+			} catch (final FileAlreadyExistsException exception) {
+				return false;
+			}
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+
+	/**
+	 * Removes the blob associated with the given hash.
+	 * @param hash the hexadecimal hash
+	 * @return {@code true} if the blob has been removed, {@code false} if it did not exist
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean delete (final String hash) throws NullPointerException, IllegalArgumentException, IOException {
+		return Files.deleteIfExists(this.path(hash));
+	}
+
+
+	/**
+	 * Returns a read-only memory mapping of the blob associated with the given hash. Note that
+	 * the mapping stays valid after the underlying file channel has been closed, and is released
+	 * once the buffer is garbage collected.
+	 * @param hash the hexadecimal hash
+	 * @return the memory-mapped blob
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws NoSuchFileException if there is no blob associated with the given hash
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public MappedByteBuffer map (final String hash) throws NullPointerException, IllegalArgumentException, IOException {
+		try (FileChannel channel = FileChannel.open(this.path(hash), StandardOpenOption.READ)) {
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+
+	/**
+	 * Returns the given range of the blob associated with the given hash. The range is read using
+	 * positional reads, without accessing the remainder of the blob.
+	 * @param hash the hexadecimal hash
+	 * @param offset the blob offset
+	 * @param length the maximum number of bytes to be read
+	 * @return the bytes read, which may be less than requested if the blob ends prematurely
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed, or if the given offset
+	 *         or length is negative
+	 * @throws NoSuchFileException if there is no blob associated with the given hash
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public byte[] read (final String hash, final long offset, final int length) throws NullPointerException, IllegalArgumentException, IOException {
+		if (offset < 0 | length < 0) throw new IllegalArgumentException();
+
+		try (FileChannel channel = FileChannel.open(this.path(hash), StandardOpenOption.READ)) {
+			final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, Math.max(0, channel.size() - offset)));
+			while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) != -1);
+			return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+		}
+	}
+
+
+	/**
+	 * Transfers the given range of the blob associated with the given hash into the given target.
+	 * The transfer is delegated to {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+	 * which allows the operating system to send the file content without copying it into the heap
+	 * if the given target is a file or socket channel; other targets, like channels wrapping output
+	 * streams, are served by copying the content through a bounded heap buffer.
+	 * @param hash the hexadecimal hash
+	 * @param offset the blob offset
+	 * @param length the maximum number of bytes to be transferred
+	 * @param target the target channel
+	 * @return the number of bytes transferred
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed, or if the given offset
+	 *         or length is negative
+	 * @throws NoSuchFileException if there is no blob associated with the given hash
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public long transferTo (final String hash, final long offset, final long length, final WritableByteChannel target) throws NullPointerException, IllegalArgumentException, IOException {
+		if (target == null) throw new NullPointerException();
+		if (offset < 0 | length < 0) throw new IllegalArgumentException();
+
+		try (FileChannel channel = FileChannel.open(this.path(hash), StandardOpenOption.READ)) {
+			final long limit = offset + Math.min(length, Math.max(0, channel.size() - offset));
+
+			long position = offset;
+			while (position < limit) {
+				final long bytesTransferred = channel.transferTo(position, limit - position, target);
+				if (bytesTransferred <= 0) break;
+				position += bytesTransferred;
+			}
+
+			return Math.max(0, position - offset);
+		}
+	}
+
+
+	/**
+	 * Returns a streaming output that transfers the blob associated with the given hash into
+	 * the JAX-RS response entity stream once the response is written. As said entity stream is
+	 * an output stream, the content is copied through a bounded heap buffer; however, the blob
+	 * is never loaded as a whole.
+	 * @param hash the hexadecimal hash
+	 * @return the streaming output
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 */
+	public StreamingOutput streamingOutput (final String hash) throws NullPointerException, IllegalArgumentException {
+		this.path(hash);
+
+		return (final OutputStream output) -> {
+			this.transferTo(hash, 0, Long.MAX_VALUE, Channels.newChannel(output));
+			output.flush();
+		};
+	}
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package edu.sb.tool;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+
+/**
+ * Instances of this immutable class model hash codes in their binary form, which takes half the
+ * space of their hexadecimal text representation both in memory and in database indices. Equality
+ * is determined in constant time, which prevents timing attacks when comparing password hashes;
+ * the hash code and text representation are calculated once, and cached.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public final class HashCode {
+	private final byte[] bytes;
+	private final int hashCode;
+	private String text;
+
+
+	/**
+	 * Initializes a new instance from a copy of the given bytes.
+	 * @param bytes the binary hash code
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public HashCode (final byte[] bytes) throws NullPointerException {
+		this(bytes.clone(), null);
+	}
+
+
+	/**
+	 * Initializes a new instance without copying the given bytes.
+	 * @param bytes the binary hash code
+	 * @param text the hexadecimal text representation, or {@code null} for none
+	 */
+	private HashCode (final byte[] bytes, final String text) {
+		this.bytes = bytes;
+		this.hashCode = Arrays.hashCode(bytes);
+		this.text = text;
+	}
+
+
+	/**
+	 * Returns a new instance wrapping the given bytes without copying them; the caller must
+	 * ensure the given array is not modified afterwards.
+	 * @param bytes the binary hash code
+	 * @return the hash code
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static HashCode wrap (final byte[] bytes) throws NullPointerException {
+		if (bytes == null) throw new NullPointerException();
+		return new HashCode(bytes, null);
+	}
+
+
+	/**
+	 * Returns a new instance parsed from the given hexadecimal text representation.
+	 * @param text the hexadecimal text representation, containing two digits per byte
+	 * @return the hash code
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given text has an odd length,
+	 *         or contains characters other than hexadecimal digits
+	 */
+	static public HashCode valueOf (final String text) throws NullPointerException, IllegalArgumentException {
+		if ((text.length() & 1) != 0) throw new IllegalArgumentException(text);
+
+		final byte[] bytes = new byte[text.length() >>> 1];
+		for (int index = 0; index < bytes.length; ++index) {
+			final int high = Character.digit(text.charAt(index << 1), 16);
+			final int low = Character.digit(text.charAt((index << 1) + 1), 16);
+			if (high == -1 | low == -1) throw new IllegalArgumentException(text);
+			bytes[index] = (byte) ((high << 4) | low);
+		}
+
+		return new HashCode(bytes, null);
+	}
+
+
+	/**
+	 * Returns the length.
+	 * @return the number of bytes
+	 */
+	public int length () {
+		return this.bytes.length;
+	}
+
+
+	/**
+	 * Returns the bytes.
+	 * @return a copy of the binary hash code
+	 */
+	public byte[] getBytes () {
+		return this.bytes.clone();
+	}
+
+
+	/**
+	 * Returns whether or not the given object is a hash code with the same bytes. The
+	 * comparison takes constant time for hash codes of equal length.
+	 * @param object the object
+	 * @return {@code true} if the given object is equal to this hash code, {@code false} otherwise
+	 */
+	@Override
+	public boolean equals (final Object object) {
+		if (object == this) return true;
+		if (!(object instanceof HashCode)) return false;
+		return MessageDigest.isEqual(this.bytes, ((HashCode) object).bytes);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode () {
+		return this.hashCode;
+	}
+
+
+	/**
+	 * Returns the hexadecimal text representation.
+	 * @return the hexadecimal text representation, containing two lower case digits per byte
+	 */
+	@Override
+	public String toString () {
+		if (this.text == null) this.text = HashCodes.toHexadecimal(this.bytes);
+		return this.text;
+	}
+}
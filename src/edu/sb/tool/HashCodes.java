@@ -1,13 +1,24 @@
 package edu.sb.tool;
 
-import static java.lang.Character.forDigit;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
- * This facade provides operations to calculate MD5, SHA1, SHA2 and SHA3 hash codes.
+ * This facade provides operations to calculate MD5, SHA1, SHA2 and SHA3 hash codes. Message
+ * digests are cloned from prototypes created once per algorithm, which avoids the provider lookup
+ * otherwise required for each hash calculation, without retaining digests per thread. Besides binary and textual content, SHA2 and SHA3
+ * hash codes can be calculated from byte buffers (including direct and memory-mapped ones),
+ * input streams and file channels, without copying said content into a single array first.
+ * Hash codes are available both as byte arrays, and as {@link HashCode} instances.
  */
 @Copyright(year = 2017, holders = "Sascha Baumeister")
 public class HashCodes {
@@ -22,6 +33,10 @@ public class HashCodes {
 	static private final String SHA3_384_ALGORITHM = "SHA3-384";
 	static private final String SHA3_512_ALGORITHM = "SHA3-512";
 	static private final byte[] EMPTY = new byte[0];
+	static private final char[] HEXADECIMAL_DIGITS = "0123456789abcdef".toCharArray();
+	static private final int STREAM_BUFFER_SIZE = 0x2000;
+	static private final long MAPPING_SIZE = 0x10000000L;
+	static private final Map<String,MessageDigest> PROTOTYPE_DIGESTS = prototypeDigests(MD5_ALGORITHM, SHA1_ALGORITHM, SHA2_224_ALGORITHM, SHA2_256_ALGORITHM, SHA2_384_ALGORITHM, SHA2_512_ALGORITHM, SHA3_224_ALGORITHM, SHA3_256_ALGORITHM, SHA3_384_ALGORITHM, SHA3_512_ALGORITHM);
 	static private byte[] MD5_DEFAULT = md5HashCode(EMPTY);
 	static private byte[] SHA1_DEFAULT = sha1HashCode(EMPTY);
 	static private byte[] SHA2_224_DEFAULT = sha2HashCode(224, EMPTY);
@@ -40,11 +55,7 @@ public class HashCodes {
 	 * @return the corresponding MD5 hash code
 	 */
 	static public byte[] md5HashCode (final byte[] content) {
-		try {
-			return content == null ? MD5_DEFAULT.clone() : MessageDigest.getInstance(MD5_ALGORITHM).digest(content);
-		} catch (final NoSuchAlgorithmException exception) {
-			throw new AssertionError(exception);
-		}
+		return content == null ? MD5_DEFAULT.clone() : digest(MD5_ALGORITHM).digest(content);
 	}
 
 
@@ -54,11 +65,7 @@ public class HashCodes {
 	 * @return the corresponding SHA1 hash code
 	 */
 	static public byte[] sha1HashCode (final byte[] content) {
-		try {
-			return content == null ? SHA1_DEFAULT.clone() : MessageDigest.getInstance(SHA1_ALGORITHM).digest(content);
-		} catch (final NoSuchAlgorithmException exception) {
-			throw new AssertionError(exception);
-		}
+		return content == null ? SHA1_DEFAULT.clone() : digest(SHA1_ALGORITHM).digest(content);
 	}
 
 
@@ -93,11 +100,7 @@ public class HashCodes {
 				throw new IllegalArgumentException();
 		}
 
-		try {
-			return content == null ? defaultHash.clone() : MessageDigest.getInstance(algorithm).digest(content);
-		} catch (final NoSuchAlgorithmException exception) {
-			throw new AssertionError(exception);
-		}
+		return content == null ? defaultHash.clone() : digest(algorithm).digest(content);
 	}
 
 
@@ -132,11 +135,111 @@ public class HashCodes {
 				throw new IllegalArgumentException();
 		}
 
-		try {
-			return content == null ? defaultHash.clone() : MessageDigest.getInstance(algorithm).digest(content);
-		} catch (final NoSuchAlgorithmException exception) {
-			throw new AssertionError(exception);
-		}
+		return content == null ? defaultHash.clone() : digest(algorithm).digest(content);
+	}
+
+
+	/**
+	 * Returns a new SHA2 message digest, allowing the SHA2 hash of content to be calculated
+	 * incrementally while said content is still being transferred.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @return the SHA2 message digest
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public MessageDigest sha2Digest (final int bitLength) throws IllegalArgumentException {
+		return digest(sha2Algorithm(bitLength));
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA2 hash of the given buffer's remaining content. The buffer's
+	 * position is not modified. Direct and memory-mapped buffers are digested without copying
+	 * their content into the heap first.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the binary content
+	 * @return the corresponding SHA2 hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public byte[] sha2HashCode (final int bitLength, final ByteBuffer content) throws NullPointerException, IllegalArgumentException {
+		return hashCode(sha2Algorithm(bitLength), content);
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA3 hash of the given buffer's remaining content. The buffer's
+	 * position is not modified. Direct and memory-mapped buffers are digested without copying
+	 * their content into the heap first.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the binary content
+	 * @return the corresponding SHA3 hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public byte[] sha3HashCode (final int bitLength, final ByteBuffer content) throws NullPointerException, IllegalArgumentException {
+		return hashCode(sha3Algorithm(bitLength), content);
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA2 hash of the given stream's remaining content.
+	 * Note that the given stream is not closed.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the content source
+	 * @return the corresponding SHA2 hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public byte[] sha2HashCode (final int bitLength, final InputStream content) throws NullPointerException, IllegalArgumentException, IOException {
+		return hashCode(sha2Algorithm(bitLength), content);
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA3 hash of the given stream's remaining content.
+	 * Note that the given stream is not closed.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the content source
+	 * @return the corresponding SHA3 hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public byte[] sha3HashCode (final int bitLength, final InputStream content) throws NullPointerException, IllegalArgumentException, IOException {
+		return hashCode(sha3Algorithm(bitLength), content);
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA2 hash of the given file channel's complete content, regardless
+	 * of it's current position. The file is digested in memory-mapped segments, without copying
+	 * it's content into the heap first. Note that the given channel is not closed.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the file channel
+	 * @return the corresponding SHA2 hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public byte[] sha2HashCode (final int bitLength, final FileChannel content) throws NullPointerException, IllegalArgumentException, IOException {
+		return hashCode(sha2Algorithm(bitLength), content);
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA3 hash of the given file channel's complete content, regardless
+	 * of it's current position. The file is digested in memory-mapped segments, without copying
+	 * it's content into the heap first. Note that the given channel is not closed.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the file channel
+	 * @return the corresponding SHA3 hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public byte[] sha3HashCode (final int bitLength, final FileChannel content) throws NullPointerException, IllegalArgumentException, IOException {
+		return hashCode(sha3Algorithm(bitLength), content);
 	}
 
 
@@ -272,6 +375,65 @@ public class HashCodes {
 	}
 
 
+	/**
+	 * Returns the quasi-unique SHA2 hash of the given binary content.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the binary content, or {@code null} for none
+	 * @return the corresponding SHA2 hash code
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public HashCode sha2Hash (final int bitLength, final byte[] content) throws IllegalArgumentException {
+		return HashCode.wrap(sha2HashCode(bitLength, content));
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA2 hash of the given textual content.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the textual content, or {@code null} for none
+	 * @return the corresponding SHA2 hash code
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public HashCode sha2Hash (final int bitLength, final String content) throws IllegalArgumentException {
+		return HashCode.wrap(sha2HashCode(bitLength, content));
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA3 hash of the given binary content.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the binary content, or {@code null} for none
+	 * @return the corresponding SHA3 hash code
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public HashCode sha3Hash (final int bitLength, final byte[] content) throws IllegalArgumentException {
+		return HashCode.wrap(sha3HashCode(bitLength, content));
+	}
+
+
+	/**
+	 * Returns the quasi-unique SHA3 hash of the given textual content.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @param content the textual content, or {@code null} for none
+	 * @return the corresponding SHA3 hash code
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static public HashCode sha3Hash (final int bitLength, final String content) throws IllegalArgumentException {
+		return HashCode.wrap(sha3HashCode(bitLength, content));
+	}
+
+
+	/**
+	 * Completes the hash calculation of the given message digest, which is reset afterwards.
+	 * @param digest the message digest
+	 * @return the corresponding hash code
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public HashCode toHashCode (final MessageDigest digest) throws NullPointerException {
+		return HashCode.wrap(digest.digest());
+	}
+
+
 	/**
 	 * Returns the text representation of the positive hexadecimal number equivalent
 	 * to the given bytes. The result is guaranteed to have two times the length of
@@ -280,15 +442,203 @@ public class HashCodes {
 	 * @return the positive hexadecimal number
 	 * @throws NullPointerException if the given argument is {@code null}
 	 */
-	static private String toHexadecimal (final byte[] bytes) throws NullPointerException {
-		final StringBuilder builder = new StringBuilder();
-		for (int index = 0; index < bytes.length; ++index) {
-			final int digits = bytes[index] & 0xff;
-			builder.append(forDigit((digits >>> 4) & 0xf, 16));
-			builder.append(forDigit((digits >>> 0) & 0xf, 16));
+	static public String toHexadecimal (final byte[] bytes) throws NullPointerException {
+		final char[] digits = new char[bytes.length << 1];
+		toHexadecimal(bytes, digits, 0);
+		return new String(digits);
+	}
+
+
+	/**
+	 * Writes the text representation of the positive hexadecimal number equivalent to
+	 * the given bytes into the given character array, starting at the given offset.
+	 * @param bytes the bytes
+	 * @param target the target array, which must have room for two characters per byte
+	 * @param offset the target offset
+	 * @return the target offset after the last character written
+	 * @throws NullPointerException if any of the given arrays is {@code null}
+	 * @throws IndexOutOfBoundsException if the target array is too small
+	 */
+	static public int toHexadecimal (final byte[] bytes, final char[] target, int offset) throws NullPointerException, IndexOutOfBoundsException {
+		if (offset < 0 | offset > target.length - (bytes.length << 1)) throw new IndexOutOfBoundsException();
+
+		for (final byte value : bytes) {
+			target[offset++] = HEXADECIMAL_DIGITS[(value >>> 4) & 0xf];
+			target[offset++] = HEXADECIMAL_DIGITS[value & 0xf];
+		}
+
+		return offset;
+	}
+
+
+	/**
+	 * Writes the ASCII text representation of the positive hexadecimal number equivalent
+	 * to the given bytes into the given byte array, starting at the given offset.
+	 * @param bytes the bytes
+	 * @param target the target array, which must have room for two characters per byte
+	 * @param offset the target offset
+	 * @return the target offset after the last character written
+	 * @throws NullPointerException if any of the given arrays is {@code null}
+	 * @throws IndexOutOfBoundsException if the target array is too small
+	 */
+	static public int toHexadecimal (final byte[] bytes, final byte[] target, int offset) throws NullPointerException, IndexOutOfBoundsException {
+		if (offset < 0 | offset > target.length - (bytes.length << 1)) throw new IndexOutOfBoundsException();
+
+		for (final byte value : bytes) {
+			target[offset++] = (byte) HEXADECIMAL_DIGITS[(value >>> 4) & 0xf];
+			target[offset++] = (byte) HEXADECIMAL_DIGITS[value & 0xf];
 		}
 
-		return builder.toString();
+		return offset;
+	}
+
+
+	/**
+	 * Returns the hash of the given buffer's remaining content, without modifying it's position.
+	 * @param algorithm the digest algorithm
+	 * @param content the binary content
+	 * @return the hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 */
+	static private byte[] hashCode (final String algorithm, final ByteBuffer content) throws NullPointerException {
+		final MessageDigest digest = digest(algorithm);
+		digest.update(content.duplicate());
+		return digest.digest();
+	}
+
+
+	/**
+	 * Returns the hash of the given stream's remaining content.
+	 * @param algorithm the digest algorithm
+	 * @param content the content source
+	 * @return the hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private byte[] hashCode (final String algorithm, final InputStream content) throws NullPointerException, IOException {
+		return hashCode(digest(algorithm), content);
+	}
+
+
+	/**
+	 * Returns the hash of the given stream's remaining content.
+	 * @param digest the message digest
+	 * @param content the content source
+	 * @return the hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private byte[] hashCode (final MessageDigest digest, final InputStream content) throws NullPointerException, IOException {
+		final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+		for (int bytesRead = content.read(buffer); bytesRead != -1; bytesRead = content.read(buffer))
+			digest.update(buffer, 0, bytesRead);
+
+		return digest.digest();
+	}
+
+
+	/**
+	 * Returns the hash of the given file channel's complete content.
+	 * @param algorithm the digest algorithm
+	 * @param content the file channel
+	 * @return the hash code
+	 * @throws NullPointerException if the given content is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private byte[] hashCode (final String algorithm, final FileChannel content) throws NullPointerException, IOException {
+		final MessageDigest digest = digest(algorithm);
+		final long size = content.size();
+		for (long position = 0; position < size; position += MAPPING_SIZE)
+			digest.update(content.map(MapMode.READ_ONLY, position, Math.min(MAPPING_SIZE, size - position)));
+
+		return digest.digest();
+	}
+
+
+	/**
+	 * Returns the SHA2 algorithm name for the given bit length.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @return the algorithm name
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static private String sha2Algorithm (final int bitLength) throws IllegalArgumentException {
+		switch (bitLength) {
+			case 224:
+				return SHA2_224_ALGORITHM;
+			case 256:
+				return SHA2_256_ALGORITHM;
+			case 384:
+				return SHA2_384_ALGORITHM;
+			case 512:
+				return SHA2_512_ALGORITHM;
+			default:
+				throw new IllegalArgumentException();
+		}
+	}
+
+
+	/**
+	 * Returns the SHA3 algorithm name for the given bit length.
+	 * @param bitLength the hash bit length, either 224, 256, 384 or 512
+	 * @return the algorithm name
+	 * @throws IllegalArgumentException if the given bit length is neither 224, nor 256, nor 384, nor 512
+	 */
+	static private String sha3Algorithm (final int bitLength) throws IllegalArgumentException {
+		switch (bitLength) {
+			case 224:
+				return SHA3_224_ALGORITHM;
+			case 256:
+				return SHA3_256_ALGORITHM;
+			case 384:
+				return SHA3_384_ALGORITHM;
+			case 512:
+				return SHA3_512_ALGORITHM;
+			default:
+				throw new IllegalArgumentException();
+		}
+	}
+
+
+	/**
+	 * Returns a new message digest for the given algorithm, cloned from it's prototype
+	 * if the provider supports this, and created from scratch otherwise.
+	 * @param algorithm the digest algorithm
+	 * @return the message digest
+	 */
+	static private MessageDigest digest (final String algorithm) {
+		try {
+			return (MessageDigest) PROTOTYPE_DIGESTS.get(algorithm).clone();
+		} catch (final CloneNotSupportedException exception) {
+			return newDigest(algorithm);
+		}
+	}
+
+
+	/**
+	 * Returns prototype message digests for the given algorithms, which are never updated,
+	 * and therefore safe to be cloned concurrently.
+	 * @param algorithms the digest algorithms
+	 * @return the prototype digests, mapped by algorithm
+	 */
+	static private Map<String,MessageDigest> prototypeDigests (final String... algorithms) {
+		final Map<String,MessageDigest> digests = new HashMap<>();
+		for (final String algorithm : algorithms)
+			digests.put(algorithm, newDigest(algorithm));
+		return digests;
+	}
+
+
+	/**
+	 * Returns a new message digest for the given algorithm.
+	 * @param algorithm the digest algorithm
+	 * @return the message digest
+	 */
+	static private MessageDigest newDigest (final String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (final NoSuchAlgorithmException exception) {
+			throw new AssertionError(exception);
+		}
 	}
 
 
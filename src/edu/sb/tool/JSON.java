@@ -1,7 +1,16 @@
 package edu.sb.tool;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -14,6 +23,20 @@ import java.util.Map;
  */
 @Copyright(year = 2021, holders = "Sascha Baumeister")
 public class JSON {
+	static private final int WRITER_BUFFER_SIZE = 0x2000;
+	static private final String[] ESCAPES = new String[128];
+
+	static {
+		for (char character = 0; character < 0x20; ++character)
+			ESCAPES[character] = String.format("\\u%04x", (int) character);
+		ESCAPES['\b'] = "\\b";
+		ESCAPES['\t'] = "\\t";
+		ESCAPES['\n'] = "\\n";
+		ESCAPES['\f'] = "\\f";
+		ESCAPES['\r'] = "\\r";
+		ESCAPES['\\'] = "\\\\";
+	}
+
 
 	/**
 	 * Prevents external instantiation.
@@ -30,263 +53,295 @@ public class JSON {
 	 *         {@code Map} with {@code CharSequence} keys, or {@code Collection}, nor an {@code array}
 	 */
 	static public String stringify (final Object object) throws IllegalArgumentException {
-		if (object == null) return "null";
-		if (object instanceof Boolean | object instanceof Number) return object.toString();
-		if (object instanceof CharSequence) return "'" + object.toString().replace("'", "\\'").replace("\"", "\\\"").replace("\t", "\\t").replace("\n", "\\n") + "'";
-
 		final StringBuilder builder = new StringBuilder();
-		if (object instanceof Collection | object.getClass().isArray()) {
-			if (object instanceof Collection | object instanceof Object[]) {
-				final Object[] array = object instanceof Object[]
-					? (Object[]) object
-					: ((Collection<?>) object).toArray();
+		try {
+			stringify(object, builder);
+		} catch (final IOException exception) {
+			throw new AssertionError(exception);
+		}
+		return builder.toString();
+	}
 
-				builder.append("[");
-				for (int index = 0; index < array.length; ++index) {
-					if (index > 0) builder.append(", ");
-					builder.append(stringify(array[index]));
-				}
-				builder.append("]");
-			} else if (object instanceof char[]) {
+
+	/**
+	 * Writes the JSON representation for the given object into the given sink, which may be any
+	 * {@code Appendable} like a {@code StringBuilder} or a {@code Writer}. The representation is
+	 * streamed into the sink while the object is traversed, without materializing it as a whole;
+	 * the elements of primitive arrays are appended directly, without boxing them first. Note that
+	 * the given sink is neither flushed nor closed.
+	 * @param object the object, or {@code null}
+	 * @param sink the character sink
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IllegalArgumentException if the given object, or any of it's constituents, is neither
+	 *         {@code null} nor an instance of {@code Boolean}, {@code Number}, {@code CharSequence},
+	 *         {@code Map} with {@code CharSequence} keys, or {@code Collection}, nor an {@code array}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void stringify (final Object object, final Appendable sink) throws NullPointerException, IllegalArgumentException, IOException {
+		if (sink == null) throw new NullPointerException();
+
+		if (object == null) {
+			sink.append("null");
+		} else if (object instanceof Boolean | object instanceof Number) {
+			sink.append(object.toString());
+		} else if (object instanceof CharSequence) {
+			appendString((CharSequence) object, '\'', sink);
+		} else if (object instanceof Map) {
+			sink.append('{');
+
+			boolean first = true;
+			for (final Map.Entry<?,?> entry : ((Map<?,?>) object).entrySet()) {
+				if (!(entry.getKey() instanceof CharSequence)) throw new IllegalArgumentException();
+				if (!first) sink.append(", ");
+				appendString((CharSequence) entry.getKey(), '\'', sink);
+				sink.append(": ");
+				stringify(entry.getValue(), sink);
+				first = false;
+			}
+
+			sink.append('}');
+		} else if (object instanceof Iterable) {
+			if (!(object instanceof Collection)) throw new IllegalArgumentException();
+			sink.append('[');
+
+			boolean first = true;
+			for (final Object element : (Collection<?>) object) {
+				if (!first) sink.append(", ");
+				stringify(element, sink);
+				first = false;
+			}
+
+			sink.append(']');
+		} else if (object.getClass().isArray()) {
+			sink.append('[');
+
+			if (object instanceof char[]) {
 				final char[] array = (char[]) object;
-				builder.append("[");
 				for (int index = 0; index < array.length; ++index) {
-					if (index > 0) builder.append(", ");
-					builder.append('"');
-					builder.append(array[index]);
-					builder.append('"');
+					if (index > 0) sink.append(", ");
+					appendString(CharBuffer.wrap(array, index, 1), '"', sink);
 				}
-				builder.append("]");
 			} else if (object instanceof byte[]) {
-				builder.append(Arrays.toString((byte[]) object));
+				final byte[] array = (byte[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Byte.toString(array[index]));
+				}
 			} else if (object instanceof short[]) {
-				builder.append(Arrays.toString((short[]) object));
+				final short[] array = (short[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Short.toString(array[index]));
+				}
 			} else if (object instanceof int[]) {
-				builder.append(Arrays.toString((int[]) object));
+				final int[] array = (int[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Integer.toString(array[index]));
+				}
 			} else if (object instanceof long[]) {
-				builder.append(Arrays.toString((long[]) object));
+				final long[] array = (long[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Long.toString(array[index]));
+				}
 			} else if (object instanceof float[]) {
-				builder.append(Arrays.toString((float[]) object));
+				final float[] array = (float[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Float.toString(array[index]));
+				}
 			} else if (object instanceof double[]) {
-				builder.append(Arrays.toString((double[]) object));
+				final double[] array = (double[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Double.toString(array[index]));
+				}
+			} else if (object instanceof boolean[]) {
+				final boolean[] array = (boolean[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					sink.append(Boolean.toString(array[index]));
+				}
 			} else {
-				builder.append(Arrays.toString((boolean[]) object));
-			}
-		} else if (object instanceof Map) {
-			builder.append("{");
-
-			final Map<?,?> map = (Map<?,?>) object;
-			for (final Object key : map.keySet()) {
-				if (key == null | !(key instanceof CharSequence)) throw new IllegalArgumentException();
-				builder.append(stringify(key));
-				builder.append(": ");
-				builder.append(stringify(map.get(key)));
-				builder.append(", ");
+				final Object[] array = (Object[]) object;
+				for (int index = 0; index < array.length; ++index) {
+					if (index > 0) sink.append(", ");
+					stringify(array[index], sink);
+				}
 			}
 
-			if (!map.isEmpty()) builder.delete(builder.length() - 2, builder.length());
-			builder.append("}");
+			sink.append(']');
 		} else {
 			throw new IllegalArgumentException();
 		}
-
-		return builder.toString();
 	}
 
 
 	/**
-	 * Returns an object parsed from the given JSON representation. Depending on the given JSON,
-	 * the resulting object is either {@code null}, or a {@code Boolean} value, or a {@code Double}
-	 * value, or a {@code String} value, or a {@code List<Object>} value, or a
-	 * {@code Map<String,Object>} value.
-	 * @param json the JSON representation
-	 * @return the object, or {@code null}
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the argument is not valid JSON
-	 * @throws ClassCastException if the result is assigned to something not compatible to,
-	 * 			or cast to something different from classes {@code Object}, {@code Boolean},
-	 * 			{@code Double}, {@code String}, {@code Map<String,Object>}, or {@code List<Object>}
+	 * Writes the UTF-8 encoded JSON representation for the given object into the given stream,
+	 * see {@link #stringify(Object, Appendable)}. The stream is flushed, but not closed.
+	 * @param object the object, or {@code null}
+	 * @param sink the byte sink
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IllegalArgumentException if the given object, or any of it's constituents,
+	 *         cannot be represented as JSON
+	 * @throws IOException if there is an I/O related problem
 	 */
-	@SuppressWarnings("unchecked")
-	static public <T> T parse (String json) throws NullPointerException, IllegalArgumentException, ClassCastException {
-		json = json.trim();
-
-		if (json.isEmpty()) throw new IllegalArgumentException(json);
-		switch (json.charAt(0)) {
-			case 'n': case 'u':
-				return (T) parseVoid(json);				
-			case 't': case 'f':
-				return (T) parseBoolean(json);				
-			case '+': case '-': case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9': case '.': case 'E': case 'N': case 'I':   
-				return (T) parseNumber(json);
-			case '"': case '\'':
-				return (T) parseString(json);
-			case '[':
-				return (T) parseList(json);
-			case '{':
-				return (T) parseMap(json);
-			default:
-				throw new IllegalArgumentException(json);
-		}
+	static public void stringify (final Object object, final OutputStream sink) throws NullPointerException, IllegalArgumentException, IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+		stringify(object, writer);
+		writer.flush();
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created map.
-	 * @param json the JSON representation
-	 * @return the map
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON map
+	 * Writes the given text into the given sink as a string delimited by the given character.
+	 * Control characters and backslashes are escaped using a lookup table, and occurrences of
+	 * the delimiter are escaped as well; other quote characters are never escaped, as escaping
+	 * a single quote within a string delimited by double quotes would not be legal JSON. Runs
+	 * of characters not requiring any escape are appended at once.
+	 * @param text the text
+	 * @param delimiter the string delimiter
+	 * @param sink the character sink
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private Map<String,Object> parseMap (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.length() < 2 | !json.startsWith("{") | !json.endsWith("}")) throw new IllegalArgumentException(json);
-
-		final Map<String,Object> map = new HashMap<>();
-		for (int index = 1; index < json.length(); ++index) {
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (json.charAt(index) == '}') break;
-			if (json.charAt(index) != '"' & json.charAt(index) != '\'') throw new IllegalArgumentException(json);
-			int startIndex;
-
-			startIndex = index;
-			index = matchingDelimiterPosition(json, startIndex) + 1;
-			final String key = parseString(json.substring(startIndex, index));
-
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (json.charAt(index++) != ':') throw new IllegalArgumentException(json);
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-
-			startIndex = index;
-			if (json.charAt(index) == '{' | json.charAt(index) == '[' | json.charAt(index) == '"' | json.charAt(index) == '\'')
-				index = matchingDelimiterPosition(json, startIndex) + 1;
-			else
-				while (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != '}') index += 1;
-
-			final Object value = parse(json.substring(startIndex, index).trim());
-			map.put(key, value);
-
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != '}') throw new IllegalArgumentException(json);
+	static void appendString (final CharSequence text, final char delimiter, final Appendable sink) throws IOException {
+		sink.append(delimiter);
+
+		int start = 0;
+		for (int index = 0; index < text.length(); ++index) {
+			final char character = text.charAt(index);
+			if (character == delimiter) {
+				sink.append(text, start, index).append('\\').append(delimiter);
+				start = index + 1;
+			} else {
+				final String escape = character < ESCAPES.length ? ESCAPES[character] : null;
+				if (escape != null) {
+					sink.append(text, start, index).append(escape);
+					start = index + 1;
+				}
+			}
 		}
 
-		return map;
+		sink.append(text, start, text.length()).append(delimiter);
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created list.
+	 * Returns an object parsed from the given JSON representation. Depending on the given JSON,
+	 * the resulting object is either {@code null}, or a {@code Boolean} value, or a {@code Double}
+	 * value, or a {@code String} value, or a {@code List<Object>} value, or a
+	 * {@code Map<String,Object>} value. The representation is read in a single pass,
+	 * see {@link JsonTokenizer}.
 	 * @param json the JSON representation
-	 * @return the list
+	 * @return the object, or {@code null}
 	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON array
+	 * @throws IllegalArgumentException if the argument is not valid JSON
+	 * @throws ClassCastException if the result is assigned to something not compatible to,
+	 * 			or cast to something different from classes {@code Object}, {@code Boolean},
+	 * 			{@code Double}, {@code String}, {@code Map<String,Object>}, or {@code List<Object>}
 	 */
-	static private List<Object> parseList (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.length() < 2 | !json.startsWith("[") | !json.endsWith("]")) throw new IllegalArgumentException(json);
-
-		final List<Object> list = new ArrayList<>();
-		for (int index = 1; index < json.length(); ++index) {
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (json.charAt(index) == ']') break;
-
-			final int startIndex = index;
-			if (json.charAt(index) == '{' | json.charAt(index) == '[' | json.charAt(index) == '"' | json.charAt(index) == '\'')
-				index = matchingDelimiterPosition(json, startIndex) + 1;
-			else
-				while (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != ']') index += 1;
-
-			final Object element = parse(json.substring(startIndex, index).trim());
-			list.add(element);
-
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != ']') throw new IllegalArgumentException(json);
-		}
-
-		return list;
+	static public <T> T parse (final String json) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		return parse(new JsonTokenizer(json));
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created string.
-	 * @param json the JSON representation
-	 * @return the string
+	 * Returns an object parsed from the given reader's remaining content, see {@link #parse(String)}.
+	 * Note that the given reader is not closed.
+	 * @param json the JSON source
+	 * @return the object, or {@code null}
 	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON string
+	 * @throws IllegalArgumentException if the content is not valid JSON
+	 * @throws ClassCastException if the result is assigned to something incompatible
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private String parseString (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.length() < 2 | !((json.startsWith("\"") & json.endsWith("\"")) | (json.startsWith("'") & json.endsWith("'")))) throw new IllegalArgumentException(json);
-
-		return json.substring(1, json.length() - 1).replace("\\'", "'").replace("\\\"", "\"").replace("\\t", "\t").replace("\\n", "\n");
+	static public <T> T parse (final Reader json) throws NullPointerException, IllegalArgumentException, ClassCastException, IOException {
+		try {
+			return parse(new JsonTokenizer(json));
+		} catch (final UncheckedIOException exception) {
+			throw exception.getCause();
+		}
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created numeric value.
-	 * @param json the JSON representation
-	 * @return the numeric value as {@code Double}
+	 * Returns an object parsed from the given buffer's remaining UTF-8 encoded content,
+	 * see {@link #parse(String)}.
+	 * @param json the UTF-8 encoded JSON representation
+	 * @return the object, or {@code null}
 	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON number
+	 * @throws IllegalArgumentException if the content is not valid UTF-8 encoded JSON
+	 * @throws ClassCastException if the result is assigned to something incompatible
 	 */
-	static private Double parseNumber (final String json) throws NullPointerException, IllegalArgumentException {
-		return Double.parseDouble(json);
+	static public <T> T parse (final ByteBuffer json) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		return parse(new JsonTokenizer(json));
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created boolean value.
+	 * Returns a lazy view of the given JSON representation, whose values are decoded only
+	 * when accessed, see {@link JsonView}.
 	 * @param json the JSON representation
-	 * @return the Boolean value
+	 * @return the view of the top-level value
 	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON boolean
+	 * @throws IllegalArgumentException if the argument is not structurally valid JSON
 	 */
-	static private Boolean parseBoolean (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.equals("true")) return true;
-		if (json.equals("false")) return false;
-		throw new IllegalArgumentException(json);
+	static public JsonView view (final CharSequence json) throws NullPointerException, IllegalArgumentException {
+		return JsonView.of(json);
 	}
 
 
 	/**
-	 * Converts the given JSON representation into {@code null}.
-	 * @param json the JSON representation
-	 * @return the {@code null} value
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON void
+	 * Returns an object built from the given tokenizer's events, which must
+	 * represent exactly one top-level value.
+	 * @param tokenizer the JSON tokenizer
+	 * @return the object, or {@code null}
+	 * @throws IllegalArgumentException if the tokenizer's content is not valid JSON
+	 * @throws ClassCastException if the result is assigned to something incompatible
 	 */
-	static private Void parseVoid (final String json) throws NullPointerException, IllegalArgumentException {
-		if (!json.equals("null") & !json.equals("undefined")) throw new IllegalArgumentException(json);
-
-		return null;
+	@SuppressWarnings("unchecked")
+	static private <T> T parse (final JsonTokenizer tokenizer) throws IllegalArgumentException, ClassCastException {
+		final Object result = parseValue(tokenizer, tokenizer.next());
+		if (tokenizer.hasNext()) throw new IllegalArgumentException();
+		return (T) result;
 	}
 
 
 	/**
-	 * Returns the position of the stop delimiter matching the start delimiter at the given position.
-	 * @param json the JSON representation
-	 * @param startPosition the start delimiter position
-	 * @return the matching stop delimiter position
-	 * @throws NullPointerException if the given JSON argument is {@code null}
-	 * @throws IllegalArgumentException if the given start position is out of range,
-	 *			or if the given JSON doesn't contain a matching stop delimiter
+	 * Returns the value starting with the given event, reading any further events the value consists of.
+	 * @param tokenizer the JSON tokenizer
+	 * @param event the value's first event
+	 * @return the value, or {@code null}
+	 * @throws IllegalArgumentException if the tokenizer's content is not valid JSON
 	 */
-	static private int matchingDelimiterPosition (final String json, final int startPosition) throws NullPointerException, IllegalArgumentException {
-		if (startPosition < 0 | startPosition >= json.length()) throw new IllegalArgumentException(json);
-		final char startDelimiter = json.charAt(startPosition);
-
-		if (startDelimiter == '"' | startDelimiter == '\'') {
-			for (int index = startPosition + 1; index < json.length(); ++index) {
-				final char character = json.charAt(index);
-				if (character == startDelimiter & json.charAt(index - 1) != '\\') return index;
+	static private Object parseValue (final JsonTokenizer tokenizer, final JsonTokenizer.Event event) throws IllegalArgumentException {
+		switch (event) {
+			case NULL:
+				return null;
+			case BOOLEAN:
+				return tokenizer.getBoolean();
+			case NUMBER:
+				return tokenizer.getNumber();
+			case STRING:
+				return tokenizer.getString();
+			case START_ARRAY: {
+				final List<Object> list = new ArrayList<>();
+				for (JsonTokenizer.Event element = tokenizer.next(); element != JsonTokenizer.Event.END_ARRAY; element = tokenizer.next())
+					list.add(parseValue(tokenizer, element));
+				return list;
 			}
-		} else if (startDelimiter == '{' | startDelimiter == '[') {
-			for (int index = startPosition + 1; index < json.length(); ++index) {
-				final char character = json.charAt(index);
-				if ((startDelimiter == '{' & character == '}') | (startDelimiter == '[' & character == ']')) return index;
-
-				if (character == '{' | character == '[' | character == '"' | character == '\'')
-					index = matchingDelimiterPosition(json, index);
+			case START_OBJECT: {
+				final Map<String,Object> map = new HashMap<>();
+				for (JsonTokenizer.Event key = tokenizer.next(); key != JsonTokenizer.Event.END_OBJECT; key = tokenizer.next()) {
+					final String name = tokenizer.getString();
+					map.put(name, parseValue(tokenizer, tokenizer.next()));
+				}
+				return map;
 			}
+			default:
+				throw new IllegalArgumentException();
 		}
-
-		throw new IllegalArgumentException(json);
 	}
-}
\ No newline at end of file
+}
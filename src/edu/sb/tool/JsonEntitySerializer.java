@@ -0,0 +1,296 @@
+package edu.sb.tool;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalAmount;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import javax.json.bind.annotation.JsonbProperty;
+import javax.json.bind.annotation.JsonbTransient;
+import javax.json.bind.annotation.JsonbVisibility;
+
+
+/**
+ * Instances of this class serialize instances of a specific class into JSON, based on the same property rules
+ * as {@link JsonProtectedPropertyStrategy}: public and protected getters are properties, unless annotated with
+ * {@link JsonbTransient}, with {@link JsonbProperty} values overriding property names. Properties are determined
+ * by reflection exactly once per class, and bound as method handles; afterwards, serializing instances requires
+ * neither reflection nor property introspection. Like <i>JSON-B</i> by default, properties are written in
+ * lexicographical order, and properties with {@code null} values are omitted. Property values of other classes are
+ * only supported if they are written as JSON values by <i>JSON-B</i> as well, like temporal types which are written
+ * as ISO 8601 strings, or if they are themselves annotated with {@link JsonProtectedPropertyStrategy}.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class JsonEntitySerializer {
+	static private final int WRITER_BUFFER_SIZE = 0x2000;
+	static private final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	static private final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_DATE_TIME.withZone(ZoneId.of("UTC"));
+	static private final ClassValue<JsonEntitySerializer> SERIALIZERS = new ClassValue<>() {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected JsonEntitySerializer computeValue (final Class<?> type) {
+			return new JsonEntitySerializer(type);
+		}
+	};
+
+	private final Class<?> type;
+	private final String[] propertyNames;
+	private final MethodHandle[] propertyGetters;
+
+
+	/**
+	 * Returns the serializer for the given class, creating it upon first request.
+	 * @param type the class
+	 * @return the serializer
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if a getter of the given class cannot be accessed
+	 */
+	static public JsonEntitySerializer of (final Class<?> type) throws NullPointerException, IllegalStateException {
+		return SERIALIZERS.get(type);
+	}
+
+
+	/**
+	 * Initializes a new instance by determining the given class's properties.
+	 * @param type the class
+	 * @throws IllegalStateException if a getter of the given class cannot be accessed
+	 */
+	private JsonEntitySerializer (final Class<?> type) throws IllegalStateException {
+		final Map<String,MethodHandle> properties = new TreeMap<>();
+		final Set<String> methodNames = new HashSet<>();
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+		for (Class<?> declaringType = type; declaringType != null && declaringType != Object.class; declaringType = declaringType.getSuperclass()) {
+			for (final Method method : declaringType.getDeclaredMethods()) {
+				if (method.getParameterCount() != 0 | Modifier.isStatic(method.getModifiers()) | method.isSynthetic()) continue;
+				if (!methodNames.add(method.getName())) continue;
+
+				final String name = propertyName(method);
+				if (name == null || properties.containsKey(name)) continue;
+
+				try {
+					method.setAccessible(true);
+					properties.put(name, lookup.unreflect(method).asType(GETTER_TYPE));
+				} catch (final IllegalAccessException | RuntimeException exception) {
+					throw new IllegalStateException(exception);
+				}
+			}
+		}
+
+		this.type = type;
+		this.propertyNames = new String[properties.size()];
+		this.propertyGetters = new MethodHandle[properties.size()];
+
+		int index = 0;
+		for (final Map.Entry<String,MethodHandle> entry : properties.entrySet()) {
+			final StringBuilder builder = new StringBuilder();
+			try {
+				JSON.appendString(entry.getKey(), '"', builder);
+			} catch (final IOException exception) {
+				throw new AssertionError(exception);
+			}
+
+			this.propertyNames[index] = builder.append(':').toString();
+			this.propertyGetters[index++] = entry.getValue();
+		}
+	}
+
+
+	/**
+	 * Returns the type.
+	 * @return the class whose instances are serialized
+	 */
+	public Class<?> getType () {
+		return this.type;
+	}
+
+
+	/**
+	 * Writes the JSON representation of the given instance into the given sink.
+	 * Note that the given sink is neither flushed nor closed.
+	 * @param object the instance
+	 * @param sink the character sink
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws ClassCastException if the given object is not an instance of this serializer's type
+	 * @throws IllegalArgumentException if a property value is of an unsupported type
+	 * @throws IllegalStateException if a getter fails
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void write (final Object object, final Appendable sink) throws NullPointerException, ClassCastException, IllegalArgumentException, IllegalStateException, IOException {
+		if (object == null | sink == null) throw new NullPointerException();
+		if (!this.type.isInstance(object)) throw new ClassCastException();
+
+		sink.append('{');
+		boolean first = true;
+		for (int index = 0; index < this.propertyGetters.length; ++index) {
+			final Object value;
+			try {
+				value = (Object) this.propertyGetters[index].invokeExact(object);
+			} catch (final RuntimeException | Error exception) {
+				throw exception;
+			} catch (final Throwable exception) {
+				throw new IllegalStateException(exception);
+			}
+			if (value == null) continue;
+
+			if (!first) sink.append(',');
+			sink.append(this.propertyNames[index]);
+			writeValue(value, sink);
+			first = false;
+		}
+		sink.append('}');
+	}
+
+
+	/**
+	 * Writes the JSON representation of the given value into the given sink. Strings, characters
+	 * and enumeration constants are written as JSON strings, booleans and numbers as such, maps as
+	 * JSON objects, and collections and arrays as JSON arrays. Like with <i>JSON-B</i>, temporal
+	 * values are written as ISO 8601 strings, with dates in UTC, and durations, periods, UUIDs and
+	 * URIs as strings. Instances of classes using {@link JsonProtectedPropertyStrategy} are written
+	 * using the serializer for their class, while any other value is rejected instead of being
+	 * mistaken for a bag of getters. Note that the given sink is neither flushed nor closed.
+	 * @param value the value, or {@code null}
+	 * @param sink the character sink
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IllegalArgumentException if the given value, or any value contained therein,
+	 *         is of an unsupported type
+	 * @throws IllegalStateException if a getter fails
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void writeValue (final Object value, final Appendable sink) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
+		if (sink == null) throw new NullPointerException();
+
+		if (value == null) {
+			sink.append("null");
+		} else if (value instanceof CharSequence) {
+			JSON.appendString((CharSequence) value, '"', sink);
+		} else if (value instanceof Boolean | value instanceof Number) {
+			sink.append(value.toString());
+		} else if (value instanceof Character | value instanceof Enum) {
+			JSON.appendString(value instanceof Enum ? ((Enum<?>) value).name() : value.toString(), '"', sink);
+		} else if (value instanceof Date) {
+			JSON.appendString(DATE_FORMATTER.format(((Date) value).toInstant()), '"', sink);
+		} else if (value instanceof Calendar) {
+			final Calendar calendar = (Calendar) value;
+			JSON.appendString(DateTimeFormatter.ISO_DATE_TIME.format(ZonedDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId())), '"', sink);
+		} else if (value instanceof TemporalAccessor | value instanceof TemporalAmount | value instanceof UUID | value instanceof URI) {
+			JSON.appendString(value.toString(), '"', sink);
+		} else if (value instanceof Map) {
+			sink.append('{');
+			boolean first = true;
+			for (final Map.Entry<?,?> entry : ((Map<?,?>) value).entrySet()) {
+				if (!first) sink.append(',');
+				JSON.appendString(String.valueOf(entry.getKey()), '"', sink);
+				sink.append(':');
+				writeValue(entry.getValue(), sink);
+				first = false;
+			}
+			sink.append('}');
+		} else if (value instanceof Iterable) {
+			sink.append('[');
+			boolean first = true;
+			for (final Object element : (Iterable<?>) value) {
+				if (!first) sink.append(',');
+				writeValue(element, sink);
+				first = false;
+			}
+			sink.append(']');
+		} else if (value.getClass().isArray()) {
+			sink.append('[');
+			final int length = Array.getLength(value);
+			for (int index = 0; index < length; ++index) {
+				if (index > 0) sink.append(',');
+				writeValue(Array.get(value, index), sink);
+			}
+			sink.append(']');
+		} else if (isSerializable(value.getClass())) {
+			of(value.getClass()).write(value, sink);
+		} else {
+			throw new IllegalArgumentException(value.getClass().getName());
+		}
+	}
+
+
+	/**
+	 * Writes the UTF-8 encoded JSON representation of the given value into the given stream,
+	 * see {@link #writeValue(Object, Appendable)}. The stream is flushed, but not closed.
+	 * @param value the value, or {@code null}
+	 * @param sink the byte sink
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IllegalArgumentException if the given value, or any value contained therein,
+	 *         is of an unsupported type
+	 * @throws IllegalStateException if a getter fails
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void writeValue (final Object value, final OutputStream sink) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+		writeValue(value, writer);
+		writer.flush();
+	}
+
+
+	/**
+	 * Returns whether or not the given class, or any of it's superclasses,
+	 * uses {@link JsonProtectedPropertyStrategy} as it's property visibility strategy.
+	 * @param type the class
+	 * @return {@code true} if instances of the given class are serialized using
+	 *         property serializers, {@code false} otherwise
+	 */
+	static boolean isSerializable (Class<?> type) {
+		for (; type != null; type = type.getSuperclass()) {
+			final JsonbVisibility annotation = type.getAnnotation(JsonbVisibility.class);
+			if (annotation != null) return annotation.value() == JsonProtectedPropertyStrategy.class;
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Returns the name of the property represented by the given method.
+	 * @param method the non-static method without parameters
+	 * @return the property name, or {@code null} if the given method does not represent a visible property
+	 */
+	static private String propertyName (final Method method) {
+		final int modifiers = method.getModifiers();
+		if (!(Modifier.isPublic(modifiers) | Modifier.isProtected(modifiers)) | method.isAnnotationPresent(JsonbTransient.class)) return null;
+
+		final String name = method.getName();
+		final int prefixLength;
+		if (name.startsWith("get") && method.getReturnType() != void.class)
+			prefixLength = 3;
+		else if (name.startsWith("is") && (method.getReturnType() == boolean.class | method.getReturnType() == Boolean.class))
+			prefixLength = 2;
+		else
+			return null;
+		if (name.length() == prefixLength) return null;
+
+		final JsonbProperty annotation = method.getAnnotation(JsonbProperty.class);
+		if (annotation != null && !annotation.value().isEmpty()) return annotation.value();
+		return Character.toLowerCase(name.charAt(prefixLength)) + name.substring(prefixLength + 1);
+	}
+}
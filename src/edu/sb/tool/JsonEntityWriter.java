@@ -0,0 +1,48 @@
+package edu.sb.tool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+
+/**
+ * JAX-RS message body writer provider that marshals entities whose classes use
+ * {@link JsonProtectedPropertyStrategy}, as well as collections and arrays thereof, using
+ * precompiled {@link JsonEntitySerializer} instances instead of reflective <i>JSON-B</i> marshaling.
+ * The JSON representation is streamed directly into the response entity stream.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class JsonEntityWriter implements MessageBodyWriter<Object> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isWriteable (final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+		if (!MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)) return false;
+		if (type.isArray()) return JsonEntitySerializer.isSerializable(type.getComponentType());
+		if (!Collection.class.isAssignableFrom(type)) return JsonEntitySerializer.isSerializable(type);
+
+		final Type elementType = genericType instanceof ParameterizedType ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : null;
+		if (elementType instanceof Class) return JsonEntitySerializer.isSerializable((Class<?>) elementType);
+		if (elementType instanceof ParameterizedType) return JsonEntitySerializer.isSerializable((Class<?>) ((ParameterizedType) elementType).getRawType());
+		return false;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void writeTo (final Object object, final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String,Object> httpHeaders, final OutputStream entityStream) throws IOException {
+		JsonEntitySerializer.writeValue(object, entityStream);
+	}
+}
@@ -0,0 +1,498 @@
+package edu.sb.tool;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Single-pass pull tokenizer for JSON, reading from a character sequence, a reader, or a UTF-8
+ * encoded byte buffer. Each call to {@link #next()} reads exactly as far as required to determine
+ * the next event, and never revisits characters; key and string values are unescaped into a
+ * reusable buffer, and numbers are parsed from it. Container nesting and the placement of commas
+ * and colons are validated while reading.
+ * <p>Matching {@link JSON#parse(String)}, the tokenizer is lenient insofar as it accepts strings
+ * delimited by single quotes, the literal {@code undefined} as a synonym for {@code null}, and any
+ * number format accepted by {@link Double#parseDouble(String)}, like {@code NaN} or {@code Infinity}.</p>
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class JsonTokenizer {
+	static private final int BUFFER_SIZE = 0x2000;
+	static private final byte OBJECT = 0, ARRAY = 1;
+	static private final byte EMPTY = 0, AFTER_KEY = 1, AFTER_VALUE = 2, AFTER_COMMA = 3;
+
+	/**
+	 * The tokenizer events.
+	 */
+	static public enum Event {
+		START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, KEY, STRING, NUMBER, BOOLEAN, NULL
+	}
+
+	private final Source source;
+	private final char[] buffer;
+	private int position;
+	private int limit;
+	private long offset;
+	private byte[] containers;
+	private byte[] states;
+	private int depth;
+	private boolean done;
+	private final StringBuilder text;
+	private double number;
+	private boolean bool;
+
+
+	/**
+	 * Initializes a new instance reading the given character sequence.
+	 * @param json the JSON representation
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonTokenizer (final CharSequence json) throws NullPointerException {
+		this(charSource(CharBuffer.wrap(json)));
+	}
+
+
+	/**
+	 * Initializes a new instance reading the given reader's remaining content. Note that
+	 * the given reader is not closed.
+	 * @param json the JSON source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonTokenizer (final Reader json) throws NullPointerException {
+		this(readerSource(json));
+	}
+
+
+	/**
+	 * Initializes a new instance reading the given buffer's remaining UTF-8 encoded content.
+	 * The content is decoded incrementally, without decoding it into a string first.
+	 * @param json the UTF-8 encoded JSON representation
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonTokenizer (final ByteBuffer json) throws NullPointerException {
+		this(byteSource(json));
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param source the character source
+	 */
+	private JsonTokenizer (final Source source) {
+		this.source = source;
+		this.buffer = new char[BUFFER_SIZE];
+		this.position = 0;
+		this.limit = 0;
+		this.offset = 0;
+		this.containers = new byte[16];
+		this.states = new byte[16];
+		this.depth = 0;
+		this.done = false;
+		this.text = new StringBuilder();
+	}
+
+
+	/**
+	 * Returns the current nesting depth.
+	 * @return the number of currently open objects and arrays
+	 */
+	public int getDepth () {
+		return this.depth;
+	}
+
+
+	/**
+	 * Returns the text of the current {@link Event#KEY} or {@link Event#STRING} event.
+	 * @return the unescaped text, valid until the next call to {@link #next()}
+	 */
+	public CharSequence getText () {
+		return this.text;
+	}
+
+
+	/**
+	 * Returns the text of the current {@link Event#KEY} or {@link Event#STRING} event.
+	 * @return the unescaped text
+	 */
+	public String getString () {
+		return this.text.toString();
+	}
+
+
+	/**
+	 * Returns the value of the current {@link Event#NUMBER} event.
+	 * @return the numeric value
+	 */
+	public double getNumber () {
+		return this.number;
+	}
+
+
+	/**
+	 * Returns the value of the current {@link Event#BOOLEAN} event.
+	 * @return the boolean value
+	 */
+	public boolean getBoolean () {
+		return this.bool;
+	}
+
+
+	/**
+	 * Returns whether or not there is another event. Once the top-level value has been read
+	 * completely, only whitespace may remain.
+	 * @return {@code true} if there is another event, {@code false} otherwise
+	 * @throws IllegalArgumentException if the JSON representation is malformed
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	public boolean hasNext () throws IllegalArgumentException, UncheckedIOException {
+		final int character = this.skipWhitespace();
+		if (!this.done) {
+			if (character == -1) throw this.malformed();
+			return true;
+		}
+
+		if (character != -1) throw this.malformed();
+		return false;
+	}
+
+
+	/**
+	 * Reads and returns the next event.
+	 * @return the next event
+	 * @throws NoSuchElementException if the top-level value has been read completely
+	 * @throws IllegalArgumentException if the JSON representation is malformed
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	public Event next () throws NoSuchElementException, IllegalArgumentException, UncheckedIOException {
+		if (!this.hasNext()) throw new NoSuchElementException();
+
+		int character = this.skipWhitespace();
+		if (this.depth > 0) {
+			final int level = this.depth - 1;
+			final byte container = this.containers[level];
+			final byte state = this.states[level];
+
+			if (state != AFTER_KEY & state != AFTER_COMMA) {
+				if (character == (container == OBJECT ? '}' : ']')) {
+					this.position += 1;
+					this.depth -= 1;
+					this.valueCompleted();
+					return container == OBJECT ? Event.END_OBJECT : Event.END_ARRAY;
+				}
+
+				if (state == AFTER_VALUE) {
+					if (character != ',') throw this.malformed();
+					this.position += 1;
+					this.states[level] = AFTER_COMMA;
+					character = this.skipWhitespace();
+				}
+			}
+
+			if (container == OBJECT & this.states[level] != AFTER_KEY) {
+				if (character != '"' & character != '\'') throw this.malformed();
+				this.position += 1;
+				this.readString((char) character);
+				if (this.skipWhitespace() != ':') throw this.malformed();
+				this.position += 1;
+				this.states[level] = AFTER_KEY;
+				return Event.KEY;
+			}
+		}
+
+		switch (character) {
+			case '{':
+				this.position += 1;
+				this.push(OBJECT);
+				return Event.START_OBJECT;
+			case '[':
+				this.position += 1;
+				this.push(ARRAY);
+				return Event.START_ARRAY;
+			case '"': case '\'':
+				this.position += 1;
+				this.readString((char) character);
+				this.valueCompleted();
+				return Event.STRING;
+			case 't': case 'f': case 'n': case 'u': {
+				this.readWord();
+				final String word = this.text.toString();
+				this.valueCompleted();
+				if (word.equals("true") | word.equals("false")) {
+					this.bool = word.equals("true");
+					return Event.BOOLEAN;
+				}
+				if (word.equals("null") | word.equals("undefined")) return Event.NULL;
+				throw this.malformed();
+			}
+			default: {
+				this.readWord();
+				if (this.text.length() == 0) throw this.malformed();
+				try {
+					this.number = Double.parseDouble(this.text.toString());
+				} catch (final NumberFormatException exception) {
+					throw this.malformed();
+				}
+				this.valueCompleted();
+				return Event.NUMBER;
+			}
+		}
+	}
+
+
+	/**
+	 * Skips the remainder of the innermost open container, including it's end event. The
+	 * skipped content is tokenized and validated, but not materialized. Nothing is skipped
+	 * if there is no open container.
+	 * @throws IllegalArgumentException if the JSON representation is malformed
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	public void skipContainer () throws IllegalArgumentException, UncheckedIOException {
+		for (final int depth = this.depth; this.depth >= depth && this.depth > 0; this.next());
+	}
+
+
+	/**
+	 * Pushes a new container onto the container stack.
+	 * @param container the container type
+	 */
+	private void push (final byte container) {
+		if (this.depth == this.containers.length) {
+			this.containers = Arrays.copyOf(this.containers, this.depth << 1);
+			this.states = Arrays.copyOf(this.states, this.depth << 1);
+		}
+
+		this.containers[this.depth] = container;
+		this.states[this.depth] = EMPTY;
+		this.depth += 1;
+	}
+
+
+	/**
+	 * Updates the parse state after a value has been read completely.
+	 */
+	private void valueCompleted () {
+		if (this.depth == 0) this.done = true;
+		else this.states[this.depth - 1] = AFTER_VALUE;
+	}
+
+
+	/**
+	 * Reads a string's remaining characters into the text buffer, unescaping them.
+	 * @param delimiter the string delimiter
+	 * @throws IllegalArgumentException if the string is malformed or unterminated
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	private void readString (final char delimiter) throws IllegalArgumentException, UncheckedIOException {
+		this.text.setLength(0);
+
+		while (true) {
+			if (this.position == this.limit && !this.fill()) throw this.malformed();
+
+			int start = this.position;
+			while (this.position < this.limit) {
+				final char character = this.buffer[this.position];
+				if (character == delimiter | character == '\\') break;
+				this.position += 1;
+			}
+			this.text.append(this.buffer, start, this.position - start);
+			if (this.position == this.limit) continue;
+
+			if (this.buffer[this.position++] == delimiter) return;
+
+			final int escape = this.read();
+			switch (escape) {
+				case 'b':
+					this.text.append('\b');
+					break;
+				case 'f':
+					this.text.append('\f');
+					break;
+				case 'n':
+					this.text.append('\n');
+					break;
+				case 'r':
+					this.text.append('\r');
+					break;
+				case 't':
+					this.text.append('\t');
+					break;
+				case 'u': {
+					int code = 0;
+					for (int index = 0; index < 4; ++index) {
+						final int digit = Character.digit(this.read(), 16);
+						if (digit == -1) throw this.malformed();
+						code = (code << 4) | digit;
+					}
+					this.text.append((char) code);
+					break;
+				}
+				case -1:
+					throw this.malformed();
+				default:
+					this.text.append((char) escape);
+					break;
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a literal or number into the text buffer, i.e. any characters up to the
+	 * next whitespace, structural character, or string delimiter.
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	private void readWord () throws UncheckedIOException {
+		this.text.setLength(0);
+
+		while (this.position < this.limit || this.fill()) {
+			final char character = this.buffer[this.position];
+			if (Character.isWhitespace(character)) return;
+			switch (character) {
+				case ',': case ':': case '{': case '}': case '[': case ']': case '"': case '\'':
+					return;
+				default:
+					this.text.append(character);
+					this.position += 1;
+			}
+		}
+	}
+
+
+	/**
+	 * Skips whitespace, and returns the next character without consuming it.
+	 * @return the next character, or {@code -1} if the source is exhausted
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	private int skipWhitespace () throws UncheckedIOException {
+		while (this.position < this.limit || this.fill()) {
+			final char character = this.buffer[this.position];
+			if (!Character.isWhitespace(character)) return character;
+			this.position += 1;
+		}
+
+		return -1;
+	}
+
+
+	/**
+	 * Reads and consumes the next character.
+	 * @return the next character, or {@code -1} if the source is exhausted
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	private int read () throws UncheckedIOException {
+		if (this.position == this.limit && !this.fill()) return -1;
+		return this.buffer[this.position++];
+	}
+
+
+	/**
+	 * Refills the character buffer from the source.
+	 * @return {@code true} if characters have been read, {@code false} if the source is exhausted
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	private boolean fill () throws UncheckedIOException {
+		this.offset += this.limit;
+		this.position = 0;
+		this.limit = 0;
+
+		try {
+			int count;
+			do count = this.source.read(this.buffer); while (count == 0);
+			if (count == -1) return false;
+			this.limit = count;
+		} catch (final CharacterCodingException exception) {
+			throw new IllegalArgumentException(exception);
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Returns a new exception signaling malformed JSON at the current position.
+	 * @return the exception created
+	 */
+	private IllegalArgumentException malformed () {
+		return new IllegalArgumentException("malformed JSON at character " + (this.offset + this.position));
+	}
+
+
+	/**
+	 * Returns a source reading the given character buffer.
+	 * @param json the JSON representation
+	 * @return the source
+	 */
+	static private Source charSource (final CharBuffer json) {
+		return (final char[] buffer) -> {
+			if (!json.hasRemaining()) return -1;
+
+			final int count = Math.min(buffer.length, json.remaining());
+			json.get(buffer, 0, count);
+			return count;
+		};
+	}
+
+
+	/**
+	 * Returns a source reading the given reader.
+	 * @param json the JSON source
+	 * @return the source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private Source readerSource (final Reader json) throws NullPointerException {
+		if (json == null) throw new NullPointerException();
+		return json::read;
+	}
+
+
+	/**
+	 * Returns a source decoding the given UTF-8 encoded buffer.
+	 * @param json the UTF-8 encoded JSON representation
+	 * @return the source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private Source byteSource (final ByteBuffer json) throws NullPointerException {
+		if (json == null) throw new NullPointerException();
+
+		final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPORT)
+			.onUnmappableCharacter(CodingErrorAction.REPORT);
+		return (final char[] buffer) -> {
+			if (!json.hasRemaining()) return -1;
+
+			final CharBuffer target = CharBuffer.wrap(buffer);
+			final CoderResult result = decoder.decode(json, target, true);
+			if (result.isError()) result.throwException();
+			if (!json.hasRemaining()) decoder.flush(target);
+			return target.position();
+		};
+	}
+
+
+
+	/**
+	 * Character sources, filling a buffer from it's start.
+	 */
+	@FunctionalInterface
+	static private interface Source {
+
+		/**
+		 * Reads characters into the given buffer.
+		 * @param buffer the buffer
+		 * @return the number of characters read, or {@code -1} if the source is exhausted
+		 * @throws IOException if there is an I/O related problem
+		 */
+		int read (char[] buffer) throws IOException;
+	}
+}
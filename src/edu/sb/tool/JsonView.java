@@ -0,0 +1,578 @@
+package edu.sb.tool;
+
+import java.util.Arrays;
+
+
+/**
+ * Instances of this class model lazy, read-only views of JSON values. Creating a view of a
+ * JSON representation performs a single pass over it, building a structural index that records
+ * the kind, extent and successor of each value in a flat integer array; values themselves are
+ * decoded only when accessed. Numbers can be decoded directly into primitive {@code long},
+ * {@code int} and {@code double} values, which avoids both boxing and the precision loss of
+ * integers above 2<sup>53</sup> that parsing them as {@code Double} would cause.
+ * <p>Views are lenient like {@link JSON#parse(String)}; note however that number syntax is only
+ * validated upon access. Views share the underlying representation and index, and are therefore
+ * cheap to create; the representation must not be modified while views of it are in use.</p>
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class JsonView {
+	static private final int NULL = 0, FALSE = 1, TRUE = 2, NUMBER = 3, STRING = 4, ESCAPED_STRING = 5, ARRAY = 6, OBJECT = 7;
+	static private final byte EMPTY = 0, AFTER_KEY = 1, AFTER_VALUE = 2, AFTER_COMMA = 3;
+	static private final int STRIDE = 4, KIND = 0, START = 1, END = 2, NEXT = 3;
+
+	/**
+	 * The JSON value types.
+	 */
+	static public enum Type {
+		NULL, BOOLEAN, NUMBER, STRING, ARRAY, OBJECT
+	}
+
+	private final CharSequence json;
+	private final int[] tape;
+	private final int entry;
+	private int[] elements;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param json the JSON representation
+	 * @param tape the structural index
+	 * @param entry the index entry of this view's value
+	 */
+	private JsonView (final CharSequence json, final int[] tape, final int entry) {
+		this.json = json;
+		this.tape = tape;
+		this.entry = entry;
+		this.elements = null;
+	}
+
+
+	/**
+	 * Returns a view of the top-level value of the given JSON representation.
+	 * @param json the JSON representation
+	 * @return the view
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given argument is not structurally valid JSON
+	 */
+	static public JsonView of (final CharSequence json) throws NullPointerException, IllegalArgumentException {
+		return new JsonView(json, index(json), 0);
+	}
+
+
+	/**
+	 * Returns the type.
+	 * @return the type of this view's value
+	 */
+	public Type getType () {
+		switch (this.kind()) {
+			case NULL:
+				return Type.NULL;
+			case FALSE: case TRUE:
+				return Type.BOOLEAN;
+			case NUMBER:
+				return Type.NUMBER;
+			case STRING: case ESCAPED_STRING:
+				return Type.STRING;
+			case ARRAY:
+				return Type.ARRAY;
+			default:
+				return Type.OBJECT;
+		}
+	}
+
+
+	/**
+	 * Returns whether or not this view's value is {@code null}.
+	 * @return {@code true} if this view's value is {@code null}, {@code false} otherwise
+	 */
+	public boolean isNull () {
+		return this.kind() == NULL;
+	}
+
+
+	/**
+	 * Returns the number of elements of this array, or members of this object.
+	 * @return the size
+	 * @throws ClassCastException if this view's value is neither an array nor an object
+	 */
+	public int size () throws ClassCastException {
+		final int kind = this.kind();
+		if (kind == ARRAY) return this.elements().length;
+		if (kind != OBJECT) throw new ClassCastException();
+
+		int size = 0;
+		for (int child = this.entry + 1; child < this.next(); child = this.next(this.next(child))) size += 1;
+		return size;
+	}
+
+
+	/**
+	 * Returns a view of the array element with the given index. The element positions are
+	 * indexed upon first access, which makes subsequent accesses constant-time.
+	 * @param index the element index
+	 * @return the element view
+	 * @throws ClassCastException if this view's value is not an array
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	public JsonView get (final int index) throws ClassCastException, IndexOutOfBoundsException {
+		return new JsonView(this.json, this.tape, this.elements()[index]);
+	}
+
+
+	/**
+	 * Returns a view of the object member with the given key. Keys are compared
+	 * with the representation in place, without decoding them into strings.
+	 * @param key the member key
+	 * @return the member view, or {@code null} for none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws ClassCastException if this view's value is not an object
+	 */
+	public JsonView get (final String key) throws NullPointerException, ClassCastException {
+		if (key == null) throw new NullPointerException();
+		if (this.kind() != OBJECT) throw new ClassCastException();
+
+		for (int child = this.entry + 1; child < this.next(); child = this.next(this.next(child)))
+			if (this.keyEquals(child, key)) return new JsonView(this.json, this.tape, this.next(child));
+
+		return null;
+	}
+
+
+	/**
+	 * Returns the keys of this object's members.
+	 * @return the member keys, in order of occurrence
+	 * @throws ClassCastException if this view's value is not an object
+	 */
+	public String[] keys () throws ClassCastException {
+		final String[] keys = new String[this.size()];
+		int index = 0;
+		for (int child = this.entry + 1; child < this.next(); child = this.next(this.next(child)))
+			keys[index++] = new JsonView(this.json, this.tape, child).getString();
+
+		return keys;
+	}
+
+
+	/**
+	 * Returns this view's value as a boolean.
+	 * @return the boolean value
+	 * @throws ClassCastException if this view's value is not a boolean
+	 */
+	public boolean getBoolean () throws ClassCastException {
+		final int kind = this.kind();
+		if (kind != TRUE & kind != FALSE) throw new ClassCastException();
+		return kind == TRUE;
+	}
+
+
+	/**
+	 * Returns this view's value as a string, decoding it if necessary.
+	 * @return the string value, or {@code null} if this view's value is {@code null}
+	 * @throws ClassCastException if this view's value is neither a string nor {@code null}
+	 */
+	public String getString () throws ClassCastException {
+		switch (this.kind()) {
+			case NULL:
+				return null;
+			case STRING:
+				return this.json.subSequence(this.start(), this.end()).toString();
+			case ESCAPED_STRING: {
+				final JsonTokenizer tokenizer = new JsonTokenizer(this.json.subSequence(this.start() - 1, this.end() + 1));
+				tokenizer.next();
+				return tokenizer.getString();
+			}
+			default:
+				throw new ClassCastException();
+		}
+	}
+
+
+	/**
+	 * Returns this view's value as a double.
+	 * @return the numeric value
+	 * @throws ClassCastException if this view's value is not a number
+	 * @throws NumberFormatException if this view's value is a malformed number
+	 */
+	public double getDouble () throws ClassCastException, NumberFormatException {
+		if (this.kind() != NUMBER) throw new ClassCastException();
+		return Double.parseDouble(this.json.subSequence(this.start(), this.end()).toString());
+	}
+
+
+	/**
+	 * Returns this view's value as a long. Integer representations are decoded digit by digit,
+	 * without loss of precision; other number representations are accepted if they represent
+	 * an integral value, like {@code 1.0} or {@code 1e3}.
+	 * @return the numeric value
+	 * @throws ClassCastException if this view's value is not a number
+	 * @throws NumberFormatException if this view's value is a malformed number,
+	 *         or a number without an exact {@code long} representation
+	 */
+	public long getLong () throws ClassCastException, NumberFormatException {
+		if (this.kind() != NUMBER) throw new ClassCastException();
+		return this.decodeLong(this.entry);
+	}
+
+
+	/**
+	 * Returns this view's value as an int, see {@link #getLong()}.
+	 * @return the numeric value
+	 * @throws ClassCastException if this view's value is not a number
+	 * @throws NumberFormatException if this view's value is a malformed number,
+	 *         or a number without an exact {@code int} representation
+	 */
+	public int getInt () throws ClassCastException, NumberFormatException {
+		final long value = this.getLong();
+		if (value != (int) value) throw new NumberFormatException();
+		return (int) value;
+	}
+
+
+	/**
+	 * Returns this array's elements as longs, see {@link #getLong()}. The elements are decoded
+	 * straight into the resulting array, without creating intermediate objects.
+	 * @return the numeric values
+	 * @throws ClassCastException if this view's value is not an array, or if any of it's elements
+	 *         is not a number
+	 * @throws NumberFormatException if any of this array's elements is a malformed number,
+	 *         or a number without an exact {@code long} representation
+	 */
+	public long[] getLongArray () throws ClassCastException, NumberFormatException {
+		if (this.kind() != ARRAY) throw new ClassCastException();
+
+		int length = 0;
+		for (int child = this.entry + 1; child < this.next(); child = this.next(child)) length += 1;
+
+		final long[] values = new long[length];
+		int index = 0;
+		for (int child = this.entry + 1; child < this.next(); child = this.next(child)) {
+			if (this.tape[child * STRIDE + KIND] != NUMBER) throw new ClassCastException();
+			values[index++] = this.decodeLong(child);
+		}
+
+		return values;
+	}
+
+
+	/**
+	 * Returns this view's value materialized like {@link JSON#parse(String)} would.
+	 * @return the value, or {@code null}
+	 */
+	public Object toObject () {
+		return JSON.parse(this.toString());
+	}
+
+
+	/**
+	 * Returns this view's JSON representation.
+	 * @return the JSON representation
+	 */
+	@Override
+	public String toString () {
+		final boolean string = this.kind() == STRING | this.kind() == ESCAPED_STRING;
+		return this.json.subSequence(this.start() - (string ? 1 : 0), this.end() + (string ? 1 : 0)).toString();
+	}
+
+
+	/**
+	 * Returns this view's value kind.
+	 * @return the kind
+	 */
+	private int kind () {
+		return this.tape[this.entry * STRIDE + KIND];
+	}
+
+
+	/**
+	 * Returns this view's value start position.
+	 * @return the position of the value's first character, excluding string delimiters
+	 */
+	private int start () {
+		return this.tape[this.entry * STRIDE + START];
+	}
+
+
+	/**
+	 * Returns this view's value end position.
+	 * @return the position after the value's last character, excluding string delimiters
+	 */
+	private int end () {
+		return this.tape[this.entry * STRIDE + END];
+	}
+
+
+	/**
+	 * Returns the index entry after this view's value and all it's constituents.
+	 * @return the next entry
+	 */
+	private int next () {
+		return this.next(this.entry);
+	}
+
+
+	/**
+	 * Returns the index entry after the given entry's value and all it's constituents.
+	 * @param entry the entry
+	 * @return the next entry
+	 */
+	private int next (final int entry) {
+		return this.tape[entry * STRIDE + NEXT];
+	}
+
+
+	/**
+	 * Returns the index entries of this array's elements, indexing them first if necessary.
+	 * @return the element entries
+	 * @throws ClassCastException if this view's value is not an array
+	 */
+	private int[] elements () throws ClassCastException {
+		if (this.kind() != ARRAY) throw new ClassCastException();
+
+		if (this.elements == null) {
+			int[] elements = new int[16];
+			int length = 0;
+			for (int child = this.entry + 1; child < this.next(); child = this.next(child)) {
+				if (length == elements.length) elements = Arrays.copyOf(elements, length << 1);
+				elements[length++] = child;
+			}
+			this.elements = Arrays.copyOf(elements, length);
+		}
+
+		return this.elements;
+	}
+
+
+	/**
+	 * Returns whether or not the key with the given entry equals the given text.
+	 * @param entry the key entry
+	 * @param text the text
+	 * @return {@code true} if the key equals the given text, {@code false} otherwise
+	 */
+	private boolean keyEquals (final int entry, final String text) {
+		if (this.tape[entry * STRIDE + KIND] == ESCAPED_STRING) return new JsonView(this.json, this.tape, entry).getString().equals(text);
+
+		final int start = this.tape[entry * STRIDE + START];
+		final int end = this.tape[entry * STRIDE + END];
+		if (end - start != text.length()) return false;
+
+		for (int index = start; index < end; ++index)
+			if (this.json.charAt(index) != text.charAt(index - start)) return false;
+		return true;
+	}
+
+
+	/**
+	 * Decodes the number with the given entry into a long.
+	 * @param entry the number entry
+	 * @return the numeric value
+	 * @throws NumberFormatException if the number is malformed, or has no exact {@code long} representation
+	 */
+	private long decodeLong (final int entry) throws NumberFormatException {
+		final int start = this.tape[entry * STRIDE + START];
+		final int end = this.tape[entry * STRIDE + END];
+		final boolean negative = this.json.charAt(start) == '-';
+
+		long value = 0;
+		int index = negative | this.json.charAt(start) == '+' ? start + 1 : start;
+		if (index == end) throw new NumberFormatException();
+		for (; index < end; ++index) {
+			final int digit = this.json.charAt(index) - '0';
+			if (digit < 0 | digit > 9) break;
+			if (value < (Long.MIN_VALUE + digit) / 10) throw new NumberFormatException();
+			value = value * 10 - digit;
+		}
+
+		if (index == end) {
+			if (!negative && value == Long.MIN_VALUE) throw new NumberFormatException();
+			return negative ? value : -value;
+		}
+
+		final double number = Double.parseDouble(this.json.subSequence(start, end).toString());
+		if (number != Math.rint(number) | Math.abs(number) >= 0x1p63) throw new NumberFormatException();
+		return (long) number;
+	}
+
+
+	/**
+	 * Returns the structural index of the given JSON representation. The index consists of
+	 * one entry per value (and object key) in order of occurrence, each consisting of the
+	 * value's kind, start position, end position, and the entry following it's constituents.
+	 * @param json the JSON representation
+	 * @return the structural index
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given argument is not structurally valid JSON
+	 */
+	static private int[] index (final CharSequence json) throws NullPointerException, IllegalArgumentException {
+		int[] tape = new int[STRIDE * 64];
+		int[] containers = new int[16];
+		byte[] states = new byte[16];
+		int count = 0, depth = 0, position = 0;
+
+		while (true) {
+			position = skipWhitespace(json, position);
+			int character = position < json.length() ? json.charAt(position) : -1;
+
+			if (depth > 0) {
+				final int level = depth - 1;
+				final int container = containers[level];
+				final boolean object = tape[container * STRIDE + KIND] == OBJECT;
+
+				if (states[level] != AFTER_KEY & states[level] != AFTER_COMMA) {
+					if (character == (object ? '}' : ']')) {
+						position += 1;
+						tape[container * STRIDE + END] = position;
+						tape[container * STRIDE + NEXT] = count;
+						depth -= 1;
+						if (depth == 0) break;
+						states[depth - 1] = AFTER_VALUE;
+						continue;
+					}
+
+					if (states[level] == AFTER_VALUE) {
+						if (character != ',') throw malformed(position);
+						position = skipWhitespace(json, position + 1);
+						character = position < json.length() ? json.charAt(position) : -1;
+						states[level] = AFTER_COMMA;
+					}
+				}
+
+				if (object & states[level] != AFTER_KEY) {
+					if (character != '"' & character != '\'') throw malformed(position);
+					if ((count + 1) * STRIDE > tape.length) tape = Arrays.copyOf(tape, tape.length << 1);
+					position = indexString(json, position, tape, count++);
+					position = skipWhitespace(json, position);
+					if (position == json.length() || json.charAt(position) != ':') throw malformed(position);
+					position += 1;
+					states[level] = AFTER_KEY;
+					continue;
+				}
+			}
+
+			if ((count + 1) * STRIDE > tape.length) tape = Arrays.copyOf(tape, tape.length << 1);
+			final int entry = count++;
+			if (character == '{' | character == '[') {
+				tape[entry * STRIDE + KIND] = character == '{' ? OBJECT : ARRAY;
+				tape[entry * STRIDE + START] = position++;
+				if (depth == containers.length) {
+					containers = Arrays.copyOf(containers, depth << 1);
+					states = Arrays.copyOf(states, depth << 1);
+				}
+				containers[depth] = entry;
+				states[depth++] = EMPTY;
+				continue;
+			}
+
+			if (character == '"' | character == '\'') {
+				position = indexString(json, position, tape, entry);
+			} else {
+				final int start = position;
+				position = skipWord(json, position);
+				if (position == start) throw malformed(position);
+
+				final String word = position - start <= 9 ? json.subSequence(start, position).toString() : "";
+				final int kind;
+				switch (word) {
+					case "null": case "undefined":
+						kind = NULL;
+						break;
+					case "true":
+						kind = TRUE;
+						break;
+					case "false":
+						kind = FALSE;
+						break;
+					default:
+						kind = NUMBER;
+						break;
+				}
+
+				tape[entry * STRIDE + KIND] = kind;
+				tape[entry * STRIDE + START] = start;
+				tape[entry * STRIDE + END] = position;
+				tape[entry * STRIDE + NEXT] = entry + 1;
+			}
+
+			if (depth == 0) break;
+			states[depth - 1] = AFTER_VALUE;
+		}
+
+		if (skipWhitespace(json, position) != json.length()) throw malformed(position);
+		return Arrays.copyOf(tape, count * STRIDE);
+	}
+
+
+	/**
+	 * Indexes the string starting with the delimiter at the given position.
+	 * @param json the JSON representation
+	 * @param position the position of the string's opening delimiter
+	 * @param tape the structural index
+	 * @param entry the string's index entry
+	 * @return the position after the string's closing delimiter
+	 * @throws IllegalArgumentException if the string is not terminated
+	 */
+	static private int indexString (final CharSequence json, int position, final int[] tape, final int entry) throws IllegalArgumentException {
+		final char delimiter = json.charAt(position++);
+		final int start = position;
+
+		boolean escaped = false;
+		for (; position < json.length(); ++position) {
+			final char character = json.charAt(position);
+			if (character == delimiter) {
+				tape[entry * STRIDE + KIND] = escaped ? ESCAPED_STRING : STRING;
+				tape[entry * STRIDE + START] = start;
+				tape[entry * STRIDE + END] = position;
+				tape[entry * STRIDE + NEXT] = entry + 1;
+				return position + 1;
+			}
+
+			if (character == '\\') {
+				escaped = true;
+				position += 1;
+			}
+		}
+
+		throw malformed(position);
+	}
+
+
+	/**
+	 * Returns the position of the next character that is not whitespace.
+	 * @param json the JSON representation
+	 * @param position the start position
+	 * @return the position of the next non-whitespace character, or the representation's length
+	 */
+	static private int skipWhitespace (final CharSequence json, int position) {
+		while (position < json.length() && Character.isWhitespace(json.charAt(position))) position += 1;
+		return position;
+	}
+
+
+	/**
+	 * Returns the position after the literal or number starting at the given position.
+	 * @param json the JSON representation
+	 * @param position the start position
+	 * @return the position of the next whitespace, structural character, or string delimiter
+	 */
+	static private int skipWord (final CharSequence json, int position) {
+		for (; position < json.length(); ++position) {
+			final char character = json.charAt(position);
+			if (Character.isWhitespace(character)) break;
+			switch (character) {
+				case ',': case ':': case '{': case '}': case '[': case ']': case '"': case '\'':
+					return position;
+			}
+		}
+
+		return position;
+	}
+
+
+	/**
+	 * Returns a new exception signaling malformed JSON at the given position.
+	 * @param position the position
+	 * @return the exception created
+	 */
+	static private IllegalArgumentException malformed (final int position) {
+		return new IllegalArgumentException("malformed JSON at character " + position);
+	}
+}
@@ -0,0 +1,193 @@
+package edu.sb.tool;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.eclipse.persistence.exceptions.ConcurrencyException;
+import org.eclipse.persistence.exceptions.DatabaseException;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+
+
+/**
+ * EclipseLink JDBC connection pool that bounds the time threads wait for a connection, and records
+ * live metrics about it's usage. EclipseLink's own pool treats it's wait timeout merely as a polling
+ * interval, and lets threads wait indefinitely once all connections are in use; this pool instead
+ * fails acquisitions that exceed the wait timeout. While started, the pool is registered with the
+ * platform MBean server as {@code edu.sb.tool:type=ConnectionPool,session=...,name=...}.
+ * @see ConnectionPoolCustomizer
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class MeteredConnectionPool extends ConnectionPool implements ConnectionPoolMXBean {
+	private final LongAdder acquisitionCount;
+	private final LongAdder acquisitionTimeoutCount;
+	private final LongAdder acquisitionTime;
+	private final AtomicLong maxAcquisitionTime;
+	private volatile int waitingThreads;
+	private volatile ObjectName objectName;
+
+
+	/**
+	 * Initializes a new instance with the same configuration as the given connection pool,
+	 * which must not have been started yet.
+	 * @param template the connection pool template
+	 * @param owner the server session owning the connection pool
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public MeteredConnectionPool (final ConnectionPool template, final ServerSession owner) throws NullPointerException {
+		super(template.getName(), template.getLogin(), template.getInitialNumberOfConnections(), template.getMinNumberOfConnections(), template.getMaxNumberOfConnections(), owner);
+		if (owner == null) throw new NullPointerException();
+
+		this.setWaitTimeout(template.getWaitTimeout());
+		this.setFailoverConnectionPools(template.getFailoverConnectionPools());
+		this.acquisitionCount = new LongAdder();
+		this.acquisitionTimeoutCount = new LongAdder();
+		this.acquisitionTime = new LongAdder();
+		this.maxAcquisitionTime = new AtomicLong();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int getActiveConnections () {
+		return this.connectionsUsed.size();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int getIdleConnections () {
+		return this.connectionsAvailable.size();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWaitingThreads () {
+		return this.waitingThreads;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getAcquisitionCount () {
+		return this.acquisitionCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getAcquisitionTimeoutCount () {
+		return this.acquisitionTimeoutCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getAcquisitionTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.acquisitionTime.sum());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMaxAcquisitionTime () {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxAcquisitionTime.get());
+	}
+
+
+	/**
+	 * Acquires a connection, waiting at most for this pool's wait timeout for one to become available
+	 * once all connections are in use.
+	 * @return the connection accessor
+	 * @throws ConcurrencyException if the current thread is interrupted while waiting
+	 * @throws DatabaseException if no connection became available in time, or if connecting fails
+	 */
+	@Override
+	public synchronized Accessor acquireConnection () throws ConcurrencyException, DatabaseException {
+		final long start = System.nanoTime();
+
+		if (this.connectionsAvailable.isEmpty() && this.connectionsUsed.size() >= this.maxNumberOfConnections && !this.isDead) {
+			this.waitingThreads += 1;
+			try {
+				for (long timeout = TimeUnit.MILLISECONDS.toNanos(this.waitTimeout); this.connectionsAvailable.isEmpty() && this.connectionsUsed.size() >= this.maxNumberOfConnections; ) {
+					final long remaining = timeout == 0 ? Long.MAX_VALUE : start + timeout - System.nanoTime();
+					if (remaining <= 0) {
+						this.acquisitionTimeoutCount.increment();
+						throw DatabaseException.sqlException(new SQLTransientConnectionException("connection pool \"" + this.name + "\" exhausted, no connection available after " + this.waitTimeout + "ms"));
+					}
+
+					try {
+						TimeUnit.NANOSECONDS.timedWait(this, remaining == Long.MAX_VALUE ? 0 : remaining);
+					} catch (final InterruptedException exception) {
+						throw ConcurrencyException.waitFailureOnClientSession(exception);
+					}
+				}
+			} finally {
+				this.waitingThreads -= 1;
+			}
+		}
+
+		final Accessor accessor = super.acquireConnection();
+		final long duration = System.nanoTime() - start;
+		this.acquisitionCount.increment();
+		this.acquisitionTime.add(duration);
+		this.maxAcquisitionTime.accumulateAndGet(duration, Math::max);
+		return accessor;
+	}
+
+
+	/**
+	 * {@inheritDoc} Additionally registers this pool with the platform MBean server.
+	 */
+	@Override
+	public synchronized void startUp () {
+		super.startUp();
+
+		try {
+			final ObjectName objectName = new ObjectName("edu.sb.tool:type=ConnectionPool,session=" + ObjectName.quote(this.owner.getName()) + ",name=" + ObjectName.quote(this.name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (final JMException exception) {
+			Logger.getGlobal().log(Level.WARNING, "Connection pool \"" + this.name + "\" could not be registered with the platform MBean server.", exception);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc} Additionally unregisters this pool from the platform MBean server.
+	 */
+	@Override
+	public synchronized void shutDown () {
+		try {
+			final ObjectName objectName = this.objectName;
+			this.objectName = null;
+			if (objectName != null) ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (final JMException exception) {
+			Logger.getGlobal().log(Level.WARNING, "Connection pool \"" + this.name + "\" could not be unregistered from the platform MBean server.", exception);
+		} finally {
+			super.shutDown();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package edu.sb.tool;
+
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Record;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+
+/**
+ * EclipseLink session profiler that feeds the {@link PersistenceStatistics} bound to the current
+ * thread, if any. Register it within {@code persistence.xml} using the {@code eclipselink.profiler}
+ * property. EclipseLink invokes profilers synchronously within the thread performing the persistence
+ * work, which allows attributing said work to the request whose statistics are bound to that thread.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class PersistenceProfiler extends SessionProfilerAdapter {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getProfileWeight () {
+		return SessionProfiler.ALL;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object profileExecutionOfQuery (final DatabaseQuery query, final Record row, final AbstractSession session) {
+		final PersistenceStatistics statistics = PersistenceStatistics.current();
+		if (statistics == null) return session.internalExecuteQuery(query, (AbstractRecord) row);
+
+		final long start = System.nanoTime();
+		Object result = null;
+		statistics.beginQuery();
+		try {
+			return result = session.internalExecuteQuery(query, (AbstractRecord) row);
+		} finally {
+			statistics.endQuery(!query.isReadQuery(), result, System.nanoTime() - start);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void startOperationProfile (final String operationName, final DatabaseQuery query, final int weight) {
+		if (!SessionProfiler.StatementExecute.equals(operationName) & !SessionProfiler.RowFetch.equals(operationName)) return;
+
+		final PersistenceStatistics statistics = PersistenceStatistics.current();
+		if (statistics != null) statistics.beginStatement();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endOperationProfile (final String operationName, final DatabaseQuery query, final int weight) {
+		if (!SessionProfiler.StatementExecute.equals(operationName) & !SessionProfiler.RowFetch.equals(operationName)) return;
+
+		final PersistenceStatistics statistics = PersistenceStatistics.current();
+		if (statistics != null) statistics.endStatement();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void occurred (final String operationName, final AbstractSession session) {
+		this.occurred(operationName, null, session);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void occurred (final String operationName, final DatabaseQuery query, final AbstractSession session) {
+		final PersistenceStatistics statistics = PersistenceStatistics.current();
+		if (statistics == null) return;
+
+		if (SessionProfiler.CacheHits.equals(operationName))
+			statistics.cacheHit();
+		else if (SessionProfiler.CacheMisses.equals(operationName))
+			statistics.cacheMiss();
+	}
+}
@@ -0,0 +1,259 @@
+package edu.sb.tool;
+
+import java.util.Collection;
+
+
+/**
+ * Instances of this class collect persistence related statistics of a single HTTP request, like the
+ * number of queries executed, rows read, cache hits and misses, and the time spent querying, executing
+ * SQL statements, flushing changes and committing. Statistics are fed by {@link PersistenceProfiler}
+ * for the instance bound to the thread performing the persistence work. Bindings are meant to be scoped
+ * to single persistence operations, restoring the previous binding afterwards, which prevents stale
+ * bindings on pooled threads from attributing unrelated work to an instance. Note that instances are
+ * not thread-safe; like entity managers, they may be handed over between threads, but must never be
+ * used by multiple threads concurrently.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class PersistenceStatistics {
+	static private final ThreadLocal<PersistenceStatistics> CURRENT = new ThreadLocal<>();
+
+	private final long creationTime;
+	private long queryCount;
+	private long rowCount;
+	private long cacheHitCount;
+	private long cacheMissCount;
+	private long queryTime;
+	private long statementTime;
+	private long flushTime;
+	private long commitTime;
+	private long statementStart;
+	private int queryDepth;
+	private int statementDepth;
+
+
+	/**
+	 * Returns the statistics bound to the current thread.
+	 * @return the statistics, or {@code null} for none
+	 */
+	static public PersistenceStatistics current () {
+		return CURRENT.get();
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 */
+	public PersistenceStatistics () {
+		this.creationTime = System.nanoTime();
+	}
+
+
+	/**
+	 * Restores the given statistics as the ones bound to the current thread, usually
+	 * the ones returned by a preceding {@link #bind()} call.
+	 * @param statistics the statistics, or {@code null} for none
+	 */
+	static public void restore (final PersistenceStatistics statistics) {
+		if (statistics == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(statistics);
+	}
+
+
+	/**
+	 * Binds this instance to the current thread, which is expected to restore the
+	 * previous binding once the persistence operation at hand is complete, see
+	 * {@link #restore(PersistenceStatistics)}.
+	 * @return the statistics previously bound to the current thread, or {@code null} for none
+	 */
+	public PersistenceStatistics bind () {
+		final PersistenceStatistics statistics = CURRENT.get();
+		CURRENT.set(this);
+		return statistics;
+	}
+
+
+	/**
+	 * Returns the number of queries executed, including nested ones.
+	 * @return the query count
+	 */
+	public long getQueryCount () {
+		return this.queryCount;
+	}
+
+
+	/**
+	 * Returns the number of rows read, i.e. the number of results returned by read queries.
+	 * @return the row count
+	 */
+	public long getRowCount () {
+		return this.rowCount;
+	}
+
+
+	/**
+	 * Returns the number of cache hits.
+	 * @return the cache hit count
+	 */
+	public long getCacheHitCount () {
+		return this.cacheHitCount;
+	}
+
+
+	/**
+	 * Returns the number of cache misses.
+	 * @return the cache miss count
+	 */
+	public long getCacheMissCount () {
+		return this.cacheMissCount;
+	}
+
+
+	/**
+	 * Returns the time spent executing read queries, including object building.
+	 * @return the query time in nanoseconds
+	 */
+	public long getQueryTime () {
+		return this.queryTime;
+	}
+
+
+	/**
+	 * Returns the time spent executing SQL statements and fetching their rows.
+	 * @return the statement time in nanoseconds
+	 */
+	public long getStatementTime () {
+		return this.statementTime;
+	}
+
+
+	/**
+	 * Returns the time spent executing write queries, i.e. flushing changes, whether triggered
+	 * explicitly or by committing.
+	 * @return the flush time in nanoseconds
+	 */
+	public long getFlushTime () {
+		return this.flushTime;
+	}
+
+
+	/**
+	 * Returns the time spent committing transactions.
+	 * @return the commit time in nanoseconds
+	 */
+	public long getCommitTime () {
+		return this.commitTime;
+	}
+
+
+	/**
+	 * Returns the time elapsed since this instance has been created.
+	 * @return the life time in nanoseconds
+	 */
+	public long getLifeTime () {
+		return System.nanoTime() - this.creationTime;
+	}
+
+
+	/**
+	 * Records the begin of a query execution.
+	 */
+	void beginQuery () {
+		this.queryDepth += 1;
+	}
+
+
+	/**
+	 * Records the end of a query execution. Nested query executions are counted, but their
+	 * duration is already covered by the outermost one.
+	 * @param write whether or not the query is a write query
+	 * @param result the query result, or {@code null} for none
+	 * @param duration the query duration in nanoseconds
+	 */
+	void endQuery (final boolean write, final Object result, final long duration) {
+		this.queryDepth -= 1;
+		this.queryCount += 1;
+		if (!write) this.rowCount += result instanceof Collection ? ((Collection<?>) result).size() : (result == null ? 0 : 1);
+		if (this.queryDepth > 0) return;
+
+		if (write)
+			this.flushTime += duration;
+		else
+			this.queryTime += duration;
+	}
+
+
+	/**
+	 * Records the begin of a SQL statement execution or row fetch.
+	 */
+	void beginStatement () {
+		if (this.statementDepth++ == 0) this.statementStart = System.nanoTime();
+	}
+
+
+	/**
+	 * Records the end of a SQL statement execution or row fetch.
+	 */
+	void endStatement () {
+		if (this.statementDepth > 0 && --this.statementDepth == 0) this.statementTime += System.nanoTime() - this.statementStart;
+	}
+
+
+	/**
+	 * Records a cache hit.
+	 */
+	void cacheHit () {
+		this.cacheHitCount += 1;
+	}
+
+
+	/**
+	 * Records a cache miss.
+	 */
+	void cacheMiss () {
+		this.cacheMissCount += 1;
+	}
+
+
+	/**
+	 * Records a transaction commit.
+	 * @param duration the commit duration in nanoseconds
+	 */
+	void commit (final long duration) {
+		this.commitTime += duration;
+	}
+
+
+	/**
+	 * Returns a representation of these statistics as HTTP "Server-Timing" header value,
+	 * see <a href="https://www.w3.org/TR/server-timing/">W3C Server Timing</a>.
+	 * @return the "Server-Timing" header value
+	 */
+	public String toServerTiming () {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("jpa-query;dur=");
+		appendMilliseconds(builder, this.queryTime).append(";desc=\"").append(this.queryCount).append(" queries, ").append(this.rowCount).append(" rows\", jpa-sql;dur=");
+		appendMilliseconds(builder, this.statementTime).append(", jpa-flush;dur=");
+		appendMilliseconds(builder, this.flushTime).append(", jpa-cache;desc=\"").append(this.cacheHitCount).append(" hits, ").append(this.cacheMissCount).append(" misses\", jpa-em;dur=");
+		appendMilliseconds(builder, this.getLifeTime());
+		if (this.commitTime > 0) appendMilliseconds(builder.append(", jpa-commit;dur="), this.commitTime);
+		return builder.toString();
+	}
+
+
+	/**
+	 * Appends the given duration in milliseconds, with microsecond precision.
+	 * @param builder the string builder
+	 * @param nanos the duration in nanoseconds
+	 * @return the given string builder
+	 */
+	static private StringBuilder appendMilliseconds (final StringBuilder builder, final long nanos) {
+		final long micros = nanos / 1000;
+		final long fraction = micros % 1000;
+		builder.append(micros / 1000).append('.');
+		if (fraction < 100) builder.append('0');
+		if (fraction < 10) builder.append('0');
+		return builder.append(fraction);
+	}
+}
@@ -0,0 +1,24 @@
+package edu.sb.tool;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Marks JAX-RS resource methods or classes whose requests are processed in read-only mode by
+ * {@link RestJpaLifecycleProvider}, overriding the default choice based on the HTTP method.
+ */
+@Documented
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public @interface ReadOnly {
+
+	/**
+	 * Whether or not requests are processed in read-only mode.
+	 */
+	boolean value() default true;
+}
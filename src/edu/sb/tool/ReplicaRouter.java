@@ -0,0 +1,313 @@
+package edu.sb.tool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+
+
+/**
+ * Instances of this class route read-only work to replica persistence units, which are expected to connect to
+ * read replicas of a primary database. Replicas are selected least-loaded first, i.e. by their number of open
+ * entity managers, with ties resolved round-robin. If a lag query is given, replicas are probed periodically, and
+ * replicas lagging behind by more than the maximum lag, or failing the probe, are skipped until they recover.
+ * <p>Sessions that recently wrote to the primary database are not routed to replicas for the pin duration, which
+ * covers the maximum lag an available replica may have: besides the maximum lag itself, this includes the probe interval,
+ * as a replica's lag may grow unnoticed between probes, and one more second, as lag queries report whole seconds. Given
+ * a lag query, this ensures sessions read their own writes; without one, replica lag is unknown, replicas are always
+ * considered available, and read-your-writes consistency is merely likely, not ensured. Such sessions are tracked up to
+ * a fixed capacity; should more sessions write within the pin duration, tracking switches to routing all sessions to the
+ * primary database for the pin duration, as dropping individual sessions early would break their guarantee. Without any
+ * available replica, work is left to the primary.</p>
+ * Note that replica units should disable EclipseLink's shared cache, as their caches are not informed about
+ * modifications committed to the primary database.
+ */
+@Copyright(year = 2026, holders = "Sascha Baumeister")
+public class ReplicaRouter {
+	static private final int SESSION_CAPACITY = 10000;
+	static private final long LAG_RESOLUTION = 1000;
+	static private final long MIN_PROBE_INTERVAL = 1000;
+
+	private final List<Replica> replicas;
+	private final String lagQuery;
+	private final long maxLag;
+	private final long probeInterval;
+	private final long pinDuration;
+	private final Map<String,Long> writeSessions;
+	private final AtomicInteger rotation;
+	private volatile long saturationTime;
+	private volatile boolean saturated;
+
+
+	/**
+	 * Initializes a new instance by creating entity manager factories for the given replica persistence units.
+	 * @param replicaUnitNames the replica persistence unit names
+	 * @param lagQuery the native query returning a replica's lag in seconds as a single number, or {@code null} for none
+	 * @param maxLag the maximum lag in milliseconds
+	 * @throws NullPointerException if the given unit names, or any of their elements, is {@code null}
+	 * @throws IllegalArgumentException if the given unit names are empty, or if the given maximum lag is negative
+	 * @throws PersistenceException if there is a problem configuring a replica persistence context
+	 */
+	public ReplicaRouter (final String[] replicaUnitNames, final String lagQuery, final long maxLag) throws NullPointerException, IllegalArgumentException, PersistenceException {
+		if (replicaUnitNames.length == 0 | maxLag < 0) throw new IllegalArgumentException();
+
+		final Replica[] replicas = new Replica[replicaUnitNames.length];
+		try {
+			for (int index = 0; index < replicas.length; ++index) {
+				if (replicaUnitNames[index] == null) throw new NullPointerException();
+				replicas[index] = new Replica(replicaUnitNames[index], Persistence.createEntityManagerFactory(replicaUnitNames[index]), lagQuery == null);
+			}
+		} catch (final RuntimeException exception) {
+			for (final Replica replica : replicas)
+				if (replica != null) replica.entityManagerFactory.close();
+			throw exception;
+		}
+
+		this.replicas = Collections.unmodifiableList(Arrays.asList(replicas));
+		this.lagQuery = lagQuery;
+		this.maxLag = maxLag;
+		this.probeInterval = Math.max(MIN_PROBE_INTERVAL, maxLag / 2);
+		this.pinDuration = maxLag + this.probeInterval + LAG_RESOLUTION;
+		this.writeSessions = new ConcurrentHashMap<>();
+		this.rotation = new AtomicInteger();
+	}
+
+
+	/**
+	 * Returns the replicas.
+	 * @return the replicas, in configuration order
+	 */
+	public List<Replica> getReplicas () {
+		return this.replicas;
+	}
+
+
+	/**
+	 * Returns the maximum lag.
+	 * @return the maximum lag in milliseconds a replica may have to remain available
+	 */
+	public long getMaxLag () {
+		return this.maxLag;
+	}
+
+
+	/**
+	 * Returns the probe interval.
+	 * @return the interval in milliseconds at which replicas are expected to be probed, see {@link #probe()}
+	 */
+	public long getProbeInterval () {
+		return this.probeInterval;
+	}
+
+
+	/**
+	 * Returns the pin duration.
+	 * @return the time span in milliseconds sessions are kept on the primary database after writing, which is the sum of
+	 *         the maximum lag, the probe interval, and the lag query's resolution of one second
+	 */
+	public long getPinDuration () {
+		return this.pinDuration;
+	}
+
+
+	/**
+	 * Returns the replica to be used for read-only work of the given session, which is the available replica with the
+	 * fewest open entity managers. Note that the replica's load must be increased using {@link Replica#acquire()} once
+	 * an entity manager is created.
+	 * @param sessionKey the session key, or {@code null} for none
+	 * @return the selected replica, or {@code null} if the primary shall be used instead
+	 */
+	public Replica select (final String sessionKey) {
+		final long now = System.nanoTime();
+		if (this.saturated && now - this.saturationTime <= TimeUnit.MILLISECONDS.toNanos(this.pinDuration)) return null;
+
+		final Long writeTime = sessionKey == null ? null : this.writeSessions.get(sessionKey);
+		if (writeTime != null) {
+			if (now - writeTime <= TimeUnit.MILLISECONDS.toNanos(this.pinDuration)) return null;
+			this.writeSessions.remove(sessionKey, writeTime);
+		}
+
+		final int offset = Math.floorMod(this.rotation.getAndIncrement(), this.replicas.size());
+		Replica selection = null;
+		for (int index = 0; index < this.replicas.size(); ++index) {
+			final Replica replica = this.replicas.get((offset + index) % this.replicas.size());
+			if (replica.available && (selection == null || replica.activeCount.get() < selection.activeCount.get()))
+				selection = replica;
+		}
+
+		return selection;
+	}
+
+
+	/**
+	 * Records that the given session wrote to the primary database, which keeps it's read-only work on the primary
+	 * database for the pin duration. If this exceeds the session capacity, expired sessions are removed; if that doesn't
+	 * suffice, all sessions are removed, and instead all read-only work is kept on the primary database for the pin
+	 * duration.
+	 * @param sessionKey the session key
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public void recordWrite (final String sessionKey) throws NullPointerException {
+		final long now = System.nanoTime();
+		this.writeSessions.put(sessionKey, now);
+		if (this.writeSessions.size() > SESSION_CAPACITY) this.purge(now);
+	}
+
+
+	/**
+	 * Removes expired sessions, and saturates this router if the session capacity is still exceeded afterwards.
+	 * @param now the current time, see {@link System#nanoTime()}
+	 */
+	private synchronized void purge (final long now) {
+		if (this.writeSessions.size() <= SESSION_CAPACITY) return;
+
+		final long pinDuration = TimeUnit.MILLISECONDS.toNanos(this.pinDuration);
+		this.writeSessions.values().removeIf(writeTime -> now - writeTime > pinDuration);
+		if (this.writeSessions.size() <= SESSION_CAPACITY - (SESSION_CAPACITY >>> 2)) return;
+
+		this.saturationTime = now;
+		this.saturated = true;
+		this.writeSessions.clear();
+		Logger.getGlobal().log(Level.WARNING, "More than {0} sessions wrote within the replica pin duration, all read-only work stays on the primary database for {1}ms.", new Object[] { SESSION_CAPACITY, this.pinDuration });
+	}
+
+
+	/**
+	 * Probes all replicas using the lag query, and updates their availability. Replicas are available if the
+	 * lag query returns a lag within the maximum lag; otherwise, including if the probe fails or the query returns
+	 * {@code null}, they are unavailable. This operation does nothing if there is no lag query, and is expected to be
+	 * called at the probe interval, as the pin duration relies on it.
+	 */
+	public void probe () {
+		if (this.lagQuery == null) return;
+
+		for (final Replica replica : this.replicas) {
+			long lag = -1;
+			try {
+				final EntityManager entityManager = replica.entityManagerFactory.createEntityManager();
+				try {
+					final Object result = entityManager.createNativeQuery(this.lagQuery).getSingleResult();
+					if (result instanceof Number) lag = TimeUnit.SECONDS.toMillis(((Number) result).longValue());
+				} finally {
+					entityManager.close();
+				}
+			} catch (final RuntimeException exception) {
+				Logger.getGlobal().log(Level.FINE, "Replica \"" + replica.name + "\" could not be probed.", exception);
+			}
+
+			final boolean available = lag >= 0 & lag <= this.maxLag;
+			replica.lag = lag;
+			if (replica.available != available) {
+				replica.available = available;
+				Logger.getGlobal().log(available ? Level.INFO : Level.WARNING, "Replica \"{0}\" is {1}, lag is {2}ms.", new Object[] { replica.name, available ? "available" : "unavailable", lag });
+			}
+		}
+	}
+
+
+	/**
+	 * Closes the entity manager factories of all replicas.
+	 */
+	public void close () {
+		for (final Replica replica : this.replicas)
+			replica.entityManagerFactory.close();
+	}
+
+
+
+	/**
+	 * Instances of this class model replicas, i.e. replica persistence units and their state.
+	 */
+	static public class Replica {
+		private final String name;
+		private final EntityManagerFactory entityManagerFactory;
+		private final AtomicInteger activeCount;
+		private volatile boolean available;
+		private volatile long lag;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the persistence unit name
+		 * @param entityManagerFactory the entity manager factory
+		 * @param available whether or not the replica is initially available
+		 */
+		private Replica (final String name, final EntityManagerFactory entityManagerFactory, final boolean available) {
+			this.name = name;
+			this.entityManagerFactory = entityManagerFactory;
+			this.activeCount = new AtomicInteger();
+			this.available = available;
+			this.lag = available ? 0 : -1;
+		}
+
+
+		/**
+		 * Returns the name.
+		 * @return the replica persistence unit name
+		 */
+		public String getName () {
+			return this.name;
+		}
+
+
+		/**
+		 * Returns the entity manager factory.
+		 * @return the entity manager factory associated with the replica persistence unit
+		 */
+		public EntityManagerFactory getEntityManagerFactory () {
+			return this.entityManagerFactory;
+		}
+
+
+		/**
+		 * Returns the active count.
+		 * @return the number of open entity managers using this replica
+		 */
+		public int getActiveCount () {
+			return this.activeCount.get();
+		}
+
+
+		/**
+		 * Returns whether or not this replica is available.
+		 * @return {@code true} if this replica is available, {@code false} otherwise
+		 */
+		public boolean isAvailable () {
+			return this.available;
+		}
+
+
+		/**
+		 * Returns the lag.
+		 * @return the lag in milliseconds as of the latest probe, or {@code -1} if unknown
+		 */
+		public long getLag () {
+			return this.lag;
+		}
+
+
+		/**
+		 * Increases the number of open entity managers using this replica.
+		 */
+		public void acquire () {
+			this.activeCount.incrementAndGet();
+		}
+
+
+		/**
+		 * Decreases the number of open entity managers using this replica.
+		 */
+		public void release () {
+			this.activeCount.decrementAndGet();
+		}
+	}
+}
@@ -2,46 +2,157 @@ package edu.sb.tool;
 
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Priority;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.Persistence;
 import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.RollbackException;
+import javax.persistence.StoredProcedureQuery;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.Provider;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 
 
 /**
  * This lifecycle provider deploys the following services for a given JPA persistence unit:
  * <ul>
- * <li><b>Entity manager life-cycle management</b>: Entity managers for this provider's persistence unit are created upon the
- * begin of any HTTP request, and closed upon it's end. This implies that the entity managers are active during entity
- * marshaling, ready to supply additional information.</li>
+ * <li><b>Entity manager life-cycle management</b>: Entity managers for this provider's persistence unit are created lazily
+ * upon their first lookup during an HTTP request, and closed upon it's end. Requests that never look up an entity manager,
+ * like requests rejected during authentication or aborted before reaching a resource, neither create an entity manager nor
+ * acquire a database connection. Entity managers remain available during entity marshaling, ready to supply additional
+ * information.</li>
  * <li><b>Request-scoped transaction demarcation</b>: Additionally, the design allows for continuous transaction coverage,
  * similar to JDBC. The idea is that a transaction is started automatically upon request begin, and at it's end the last active
- * transaction is automatically rolled back. Services should immediately start a new transaction after committing an existing
- * one.</li>
+ * transaction is automatically committed. Services should immediately start a new transaction after committing an existing
+ * one. The last active transaction is committed after the resource method, but before the response entity is written; if
+ * said commit fails, the response is replaced by an empty one with status 409 (Conflict) for optimistic lock conflicts,
+ * or 500 (Internal Server Error) otherwise. Therefore clients always see the final outcome of their request.</li>
+ * <li><b>Optimistic lock retry</b>: Services may opt into executing their work using
+ * {@link #retry(String, ContainerRequestContext, Function)}, which commits it immediately, and re-executes it within a fresh
+ * transaction with jittered exponential backoff in case of an optimistic lock conflict. The maximum number of attempts is
+ * configured using the persistence unit property {@value #RETRY_ATTEMPTS}, and defaults to three; the backoff base in
+ * milliseconds is configured using {@value #RETRY_BACKOFF}, and defaults to 20. Both may be overridden by system properties
+ * of the same name.</li>
+ * <li><b>Read-only fast path</b>: Requests using the HTTP methods GET, HEAD or OPTIONS, or targeting resource methods or
+ * classes annotated with {@link ReadOnly}, are processed without any transaction. Their entity managers apply EclipseLink's
+ * read-only query hint to all queries and finds, which serves results directly from the shared cache without cloning them;
+ * such results must therefore never be modified. Write operations, like persisting, merging or removing entities, or
+ * accessing the entity transaction, are refused with an {@link IllegalStateException}. Resource methods annotated with
+ * {@code @ReadOnly(false)} are processed in read-write mode regardless of their HTTP method.</li>
+ * <li><b>Persistence instrumentation</b>: Requests that create an entity manager collect {@link PersistenceStatistics}, given
+ * that {@link PersistenceProfiler} is registered for the persistence unit. They are reported within a {@code Server-Timing}
+ * response header, and aggregated per endpoint into {@link EndpointStatistics} instances, which are registered with the
+ * platform MBean server. Note that the response header cannot cover the time spent closing the entity manager, as it
+ * happens once the response entity has been written; the aggregated statistics do. The statistics are bound to the calling
+ * thread only for the duration of each invocation of the entity manager, it's transaction, or the queries it creates, which
+ * attributes work to the right request even if entity managers hop threads; work triggered outside of such invocations,
+ * like lazy loading of relationships, is not attributed to any request.</li>
+ * <li><b>Transaction watchdog</b>: All entity managers created are tracked until they are closed, and the begin of their
+ * transactions is recorded. A watchdog periodically looks for active transactions that have been running longer than the
+ * maximum transaction duration, and reports them together with the originating request. As entity managers are not
+ * thread-safe, the watchdog never touches them itself; instead, it requests the abort, and the request thread rolls the
+ * transaction back upon it's next use of the entity manager, which then fails with a {@link PersistenceException}; at the
+ * latest, the response filter rolls it back instead of committing it. Entity managers without an active transaction, like
+ * read-only ones or those of responses that have already been committed and are merely streaming their entity, hold no
+ * database locks, and are therefore left alone while the request is being dispatched. Once resource dispatch has ended,
+ * the request thread no longer relies on the entity manager; entity managers that still haven't been closed within
+ * another maximum transaction duration, for example because their response entity stream is never closed, are rolled back
+ * and closed by the watchdog itself, which also stops tracking them. The maximum transaction duration in milliseconds is configured using the persistence unit property {@value #MAX_TRANSACTION_DURATION}, which may
+ * be overridden by a system property of the same name, and defaults to one minute.</li>
+ * <li><b>Read replica routing</b>: If the persistence unit property {@value #REPLICA_UNITS} names one or more replica
+ * persistence units, separated by commas, read-only requests create their entity managers using a {@link ReplicaRouter},
+ * while read-write requests always use this provider's persistence unit, i.e. the primary database. Requesters are
+ * identified by their "Authorization" header; once a requester has written to the primary database, it's read-only
+ * requests stay on the primary database for the router's pin duration, i.e. the maximum replica lag plus the probe
+ * interval plus one second (see {@link ReplicaRouter#getPinDuration()}), which ensures read-your-writes consistency
+ * given a lag query; without one, replica lag is unknown, and read-your-writes consistency is not ensured.
+ * The maximum replica lag in milliseconds is configured using {@value #REPLICA_MAX_LAG}, and defaults to five seconds;
+ * the optional {@value #REPLICA_LAG_QUERY} is a native query returning a replica's lag in seconds, and is used by the
+ * watchdog to probe the replicas at the router's probe interval, i.e. half the maximum replica lag, but at least once per
+ * second. All these properties may be overridden by system properties of the same name.</li>
  * </ul>
- * Note that the use of a thread local variable for entity manager injection is based on the precondition that any HTTP request
- * is processed within a single thread. This assumption does hold in standard compatible environments, like Jersey.
+ * Entity managers are bound to the request context itself, as a request property named after this provider's persistence unit;
+ * therefore they can be looked up using {@link #entityManager(String, ContainerRequestContext)} from any thread serving a
+ * request, which includes asynchronous processing using {@code AsyncResponse} or {@code CompletionStage}, and executors
+ * based on virtual threads. The entity manager is closed using the entity manager bound to the request, regardless of the
+ * thread writing the response. For convenience, the entity manager is additionally bound to the thread executing the
+ * request filter, which allows looking it up using {@link #entityManager(String)} during synchronous processing. This
+ * thread binding ends once resource dispatch ends, i.e. once the response filter runs: the response filter removes it if
+ * it runs on the binding thread, and otherwise the binding thread discards it upon it's next lookup or request, whichever
+ * comes first. As closed entity manager references release their entity managers, such stale bindings pin no persistence
+ * context in the meantime. Note that entity managers are not thread-safe: a request's entity manager may be handed over between threads, but must
+ * never be used by multiple threads concurrently.
  */
 @Provider
 @Priority(100)
 @Copyright(year = 2013, holders = "Sascha Baumeister")
 public class RestJpaLifecycleProvider implements ContainerRequestFilter, ContainerResponseFilter {
 	static private final Map<String,RestJpaLifecycleProvider> INSTANCES = Collections.synchronizedMap(new HashMap<>());
+	static public final String SERVER_TIMING = "Server-Timing";
+	static public final String MAX_TRANSACTION_DURATION = "edu.sb.tool.max-transaction-duration";
+	static public final String REPLICA_UNITS = "edu.sb.tool.replica-units";
+	static public final String REPLICA_LAG_QUERY = "edu.sb.tool.replica-lag-query";
+	static public final String REPLICA_MAX_LAG = "edu.sb.tool.replica-max-lag";
+	static private final long DEFAULT_MAX_TRANSACTION_DURATION = 60000;
+	static public final String RETRY_ATTEMPTS = "edu.sb.tool.retry-attempts";
+	static public final String RETRY_BACKOFF = "edu.sb.tool.retry-backoff";
+	static private final long DEFAULT_REPLICA_MAX_LAG = 5000;
+	static private final int DEFAULT_RETRY_ATTEMPTS = 3;
+	static private final long DEFAULT_RETRY_BACKOFF = 20;
 
 	private final String persistenceUnitName;
+	private final String propertyName;
 	private final EntityManagerFactory entityManagerFactory;
-	private final ThreadLocal<EntityManager> entityManagerReference;
+	private final ThreadLocal<LazyEntityManager> entityManagerReference;
+	private final Map<String,EndpointStatistics> endpointStatistics;
+	private final Set<LazyEntityManager> openEntityManagers;
+	private final long maxTransactionDuration;
+	private final LongAdder abortedEntityManagerCount;
+	private final ScheduledExecutorService watchdog;
+	private final ReplicaRouter replicaRouter;
+	private final int retryAttempts;
+	private final long retryBackoff;
+	private final LongAdder conflictCount;
+	private final LongAdder retryCount;
+
+	@Context
+	private ResourceInfo resourceInfo;
 
 
 	/**
@@ -77,13 +188,53 @@ public class RestJpaLifecycleProvider implements ContainerRequestFilter, Contain
 		if (persistenceUnitName == null) throw new NullPointerException();
 		final RestJpaLifecycleProvider provider = INSTANCES.remove(persistenceUnitName);
 
-		if (provider != null) provider.getEntityManagerFactory().close();
+		if (provider != null) {
+			provider.watchdog.shutdownNow();
+			for (final LazyEntityManager entityManager : provider.openEntityManagers)
+				entityManager.abort();
+			provider.getEntityManagerFactory().close();
+			if (provider.replicaRouter != null) provider.replicaRouter.close();
+
+			for (final EndpointStatistics statistics : provider.endpointStatistics.values()) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(provider.objectName(statistics.getName()));
+				} catch (final JMException exception) {
+					// statistics not registered
+				}
+			}
+		}
 		Logger.getGlobal().log(Level.INFO, "JPA lifecycle provider disassociated from persistence unit \"{0}\".", persistenceUnitName);
 	}
 
 
 	/**
-	 * Returns the entity manager associated with both the current thread and the given persistence unit.
+	 * Returns the entity manager associated with both the given request and the given persistence unit, creating it
+	 * upon first request. This operation may be called from any thread serving the given request.
+	 * @param persistenceUnitName the persistence unit name
+	 * @param requestContext the JAX-RS request context
+	 * @return the entity manager
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if there is no lifecycle provider associated with the given persistence unit
+	 * @throws IllegalStateException if there is no entity manager associated with the given request
+	 */
+	static public EntityManager entityManager (final String persistenceUnitName, final ContainerRequestContext requestContext) throws NullPointerException, IllegalArgumentException, IllegalStateException {
+		if (requestContext == null) throw new NullPointerException();
+
+		final EntityManager entityManager = provider(persistenceUnitName).getEntityManager(requestContext);
+		if (entityManager == null) {
+			Logger.getGlobal().log(Level.SEVERE, "No entity manager associated with persistence unit \"{0}\" within the given request, ensure that the request has not been completed yet, and that the server fires proper HTTP events!", persistenceUnitName);
+			throw new IllegalStateException();
+		}
+
+		return entityManager;
+	}
+
+
+	/**
+	 * Returns the entity manager associated with both the current thread and the given persistence unit, creating it
+	 * upon first request. Note that
+	 * this only works within the thread that started processing the current request; use
+	 * {@link #entityManager(String, ContainerRequestContext)} for asynchronous processing.
 	 * @param persistenceUnitName the persistence unit name
 	 * @return the entity manager
 	 * @throws NullPointerException if the given argument is {@code null}
@@ -91,6 +242,51 @@ public class RestJpaLifecycleProvider implements ContainerRequestFilter, Contain
 	 * @throws IllegalStateException if there is no entity manager associated with the current thread
 	 */
 	static public EntityManager entityManager (final String persistenceUnitName) throws NullPointerException, IllegalArgumentException, IllegalStateException {
+		final EntityManager entityManager = provider(persistenceUnitName).getEntityManager();
+		if (entityManager == null) {
+			Logger.getGlobal().log(Level.SEVERE, "No entity manager associated with persistence unit \"{0}\" within the current thread, ensure that this call originated from handling an actual HTTP request, and that the server fires proper HTTP events!", persistenceUnitName);
+			throw new IllegalStateException();
+		}
+
+		return entityManager;
+	}
+
+
+	/**
+	 * Executes the given operation using the read-write entity manager associated with both the given request and the
+	 * given persistence unit, and commits the active transaction immediately afterwards. If the operation or the commit
+	 * fails with an optimistic lock conflict, the transaction is rolled back, the entity manager is cleared, the conflicting
+	 * entity is evicted from the shared cache, and the operation is re-executed within a fresh transaction after a jittered
+	 * exponential backoff, until the maximum number of attempts is reached. In any case, a new transaction is begun before
+	 * this operation returns. Note that the operation must therefore be idempotent: it must re-read any entities it
+	 * modifies using the given entity manager, and must not have side effects beyond it.
+	 * @param <T> the result type
+	 * @param persistenceUnitName the persistence unit name
+	 * @param requestContext the JAX-RS request context
+	 * @param operation the operation, which is passed the entity manager
+	 * @return the operation's result
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if there is no lifecycle provider associated with the given persistence unit
+	 * @throws IllegalStateException if there is no entity manager associated with the given request, or if it is read-only
+	 * @throws ClientErrorException (409) if the operation still conflicts after the maximum number of attempts, or if
+	 *         the thread is interrupted while backing off
+	 * @throws PersistenceException if the operation or the commit fails for reasons other than an optimistic lock conflict
+	 */
+	static public <T> T retry (final String persistenceUnitName, final ContainerRequestContext requestContext, final Function<EntityManager,T> operation) throws NullPointerException, IllegalArgumentException, IllegalStateException, ClientErrorException, PersistenceException {
+		if (requestContext == null | operation == null) throw new NullPointerException();
+
+		return provider(persistenceUnitName).retry(requestContext, operation);
+	}
+
+
+	/**
+	 * Returns the lifecycle provider associated with the given persistence unit.
+	 * @param persistenceUnitName the persistence unit name
+	 * @return the lifecycle provider
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if there is no lifecycle provider associated with the given persistence unit
+	 */
+	static private RestJpaLifecycleProvider provider (final String persistenceUnitName) throws NullPointerException, IllegalArgumentException {
 		if (persistenceUnitName == null) throw new NullPointerException();
 
 		final RestJpaLifecycleProvider provider = INSTANCES.get(persistenceUnitName);
@@ -99,29 +295,76 @@ public class RestJpaLifecycleProvider implements ContainerRequestFilter, Contain
 			throw new IllegalArgumentException();
 		}
 
-		final EntityManager entityManager = provider.getEntityManager();
-		if (entityManager == null) {
-			Logger.getGlobal().log(Level.SEVERE, "No entity manager associated with persistence unit \"{0}\" within the current thread, ensure that this call originated from handling an actual HTTP request, and that the server fires proper HTTP events!", persistenceUnitName);
-			throw new IllegalStateException();
-		}
-
-		return entityManager;
+		return provider;
 	}
 
 
 	/**
-	 * Initializes a new instance by creating an entity manager factory for the given argument, and initializing
-	 * a new entity manager thread local reference.
+	 * Initializes a new instance by creating an entity manager factory for the given argument, initializing
+	 * a new entity manager thread local reference, creating the replica router if replicas are configured,
+	 * and starting the watchdog.
 	 * @param persistenceUnitName the persistence unit name
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws PersistenceException if there is a problem configuring the persistence context
+	 * @throws NumberFormatException if the maximum transaction duration, replica lag, retry attempts or retry backoff
+	 *         is not a number
+	 * @throws IllegalArgumentException if the maximum transaction duration or retry attempts are not strictly positive,
+	 *         or if the maximum replica lag or retry backoff is negative
 	 */
-	protected RestJpaLifecycleProvider (final String persistenceUnitName) throws NullPointerException, PersistenceException {
+	protected RestJpaLifecycleProvider (final String persistenceUnitName) throws NullPointerException, PersistenceException, IllegalArgumentException {
 		if (persistenceUnitName == null) throw new NullPointerException();
 
 		this.persistenceUnitName = persistenceUnitName;
+		this.propertyName = EntityManager.class.getName() + ':' + persistenceUnitName;
 		this.entityManagerFactory = Persistence.createEntityManagerFactory(persistenceUnitName);
 		this.entityManagerReference = new ThreadLocal<>();
+		this.endpointStatistics = new ConcurrentHashMap<>();
+		this.openEntityManagers = ConcurrentHashMap.newKeySet();
+		this.abortedEntityManagerCount = new LongAdder();
+		this.conflictCount = new LongAdder();
+		this.retryCount = new LongAdder();
+
+		try {
+			this.maxTransactionDuration = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(this.property(MAX_TRANSACTION_DURATION, DEFAULT_MAX_TRANSACTION_DURATION)));
+			if (this.maxTransactionDuration <= 0) throw new IllegalArgumentException();
+
+			final String replicaUnits = this.property(REPLICA_UNITS, "");
+			this.replicaRouter = replicaUnits.isEmpty()
+				? null
+				: new ReplicaRouter(replicaUnits.split("\\s*,\\s*"), this.property(REPLICA_LAG_QUERY, null), Long.parseLong(this.property(REPLICA_MAX_LAG, DEFAULT_REPLICA_MAX_LAG)));
+
+			this.retryAttempts = Integer.parseInt(this.property(RETRY_ATTEMPTS, DEFAULT_RETRY_ATTEMPTS));
+			this.retryBackoff = Long.parseLong(this.property(RETRY_BACKOFF, DEFAULT_RETRY_BACKOFF));
+			if (this.retryAttempts <= 0 | this.retryBackoff < 0) throw new IllegalArgumentException();
+		} catch (final RuntimeException exception) {
+			this.entityManagerFactory.close();
+			throw exception;
+		}
+
+		final long sweepInterval = Math.max(TimeUnit.SECONDS.toNanos(1), this.maxTransactionDuration / 4);
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "jpa-watchdog-" + persistenceUnitName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.watchdog.scheduleWithFixedDelay(this::abortStragglers, sweepInterval, sweepInterval, TimeUnit.NANOSECONDS);
+		if (this.replicaRouter != null) {
+			this.watchdog.scheduleAtFixedRate(this.replicaRouter::probe, 0, this.replicaRouter.getProbeInterval(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+
+	/**
+	 * Returns the value of the given persistence unit property, which may be overridden by a system property
+	 * of the same name.
+	 * @param key the property key
+	 * @param defaultValue the default value, or {@code null} for none
+	 * @return the trimmed property value, or {@code null} for none
+	 */
+	private String property (final String key, final Object defaultValue) {
+		final Object value = this.entityManagerFactory.getProperties().getOrDefault(key, defaultValue);
+		final String text = System.getProperty(key, value == null ? null : value.toString());
+		return text == null ? null : text.trim();
 	}
 
 
@@ -144,39 +387,189 @@ public class RestJpaLifecycleProvider implements ContainerRequestFilter, Contain
 
 
 	/**
-	 * Returns the entity manager.
+	 * Returns the entity manager, creating it upon first request.
 	 * @return the entity manager associated with the current thread, or {@code null} for none
 	 */
 	public EntityManager getEntityManager () {
-		return this.entityManagerReference.get();
+		final LazyEntityManager entityManager = this.entityManagerReference.get();
+		if (entityManager == null) return null;
+		if (entityManager.isDispatched()) {
+			this.entityManagerReference.remove();
+			return null;
+		}
+
+		return entityManager.get();
+	}
+
+
+	/**
+	 * Returns the entity manager, creating it upon first request.
+	 * @param requestContext the JAX-RS request context
+	 * @return the entity manager associated with the given request, or {@code null} for none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public EntityManager getEntityManager (final ContainerRequestContext requestContext) throws NullPointerException {
+		final LazyEntityManager entityManager = (LazyEntityManager) requestContext.getProperty(this.propertyName);
+		return entityManager == null ? null : entityManager.get();
+	}
+
+
+	/**
+	 * Returns the replica router.
+	 * @return the replica router, or {@code null} if no replicas are configured
+	 */
+	public ReplicaRouter getReplicaRouter () {
+		return this.replicaRouter;
 	}
 
 
 	/**
-	 * This operation is called by the JAX-RS runtime before an HTTP request is processed withing the current thread. It creates
-	 * a new entity manager instance using this provider's entity manager factory, and stores it within the thread local
-	 * reference associated with this provider's persistence unit name.
-	 * @param requestContext the (optional) JAX-RS request context
+	 * Returns the maximum transaction duration.
+	 * @return the maximum time in milliseconds a transaction may stay active before the watchdog aborts it
 	 */
-	public void filter (final ContainerRequestContext requestContext) {
-		final EntityManager entityManager = this.entityManagerFactory.createEntityManager();
-		entityManager.getTransaction().begin();
+	public long getMaxTransactionDuration () {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxTransactionDuration);
+	}
+
+
+	/**
+	 * Returns the number of open entity managers.
+	 * @return the number of entity managers that have been created, but not closed yet
+	 */
+	public int getOpenEntityManagerCount () {
+		return this.openEntityManagers.size();
+	}
+
+
+	/**
+	 * Returns the number of aborted transactions.
+	 * @return the number of transactions the watchdog has requested to be rolled back, plus the number of entity
+	 *         managers it has rolled back and closed itself after resource dispatch
+	 */
+	public long getAbortedEntityManagerCount () {
+		return this.abortedEntityManagerCount.sum();
+	}
+
+
+	/**
+	 * Returns the number of optimistic lock conflicts.
+	 * @return the number of request transactions that failed with an optimistic lock conflict, including retried ones
+	 */
+	public long getConflictCount () {
+		return this.conflictCount.sum();
+	}
+
+
+	/**
+	 * Returns the number of optimistic lock retries.
+	 * @return the number of operations re-executed after an optimistic lock conflict
+	 */
+	public long getRetryCount () {
+		return this.retryCount.sum();
+	}
+
+
+	/**
+	 * Returns the endpoint statistics.
+	 * @return the aggregated persistence statistics of all endpoints that used entity managers so far, keyed by endpoint name
+	 */
+	public Map<String,EndpointStatistics> getEndpointStatistics () {
+		return Collections.unmodifiableMap(this.endpointStatistics);
+	}
+
+
+	/**
+	 * Returns the endpoint name of the given request, consisting of it's HTTP method, and the simple names of the
+	 * matched resource class and method.
+	 * @param requestContext the JAX-RS request context
+	 * @return the endpoint name
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public String endpointName (final ContainerRequestContext requestContext) throws NullPointerException {
+		final Method resourceMethod = this.resourceInfo == null ? null : this.resourceInfo.getResourceMethod();
+		if (resourceMethod == null) return requestContext.getMethod();
+		return requestContext.getMethod() + ' ' + this.resourceInfo.getResourceClass().getSimpleName() + '.' + resourceMethod.getName();
+	}
+
+
+	/**
+	 * Returns whether or not the given request shall be processed in read-only mode. A {@link ReadOnly} annotation of the
+	 * matched resource method, or else of it's resource class, takes precedence; otherwise requests using the HTTP methods
+	 * GET, HEAD or OPTIONS are processed in read-only mode.
+	 * @param requestContext the JAX-RS request context
+	 * @return {@code true} if the given request is processed in read-only mode, {@code false} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public boolean isReadOnly (final ContainerRequestContext requestContext) throws NullPointerException {
+		final Method resourceMethod = this.resourceInfo == null ? null : this.resourceInfo.getResourceMethod();
+		if (resourceMethod != null) {
+			ReadOnly annotation = resourceMethod.getAnnotation(ReadOnly.class);
+			if (annotation == null) annotation = this.resourceInfo.getResourceClass().getAnnotation(ReadOnly.class);
+			if (annotation != null) return annotation.value();
+		}
+
+		final String httpMethod = requestContext.getMethod();
+		return HttpMethod.GET.equals(httpMethod) || HttpMethod.HEAD.equals(httpMethod) || HttpMethod.OPTIONS.equals(httpMethod);
+	}
+
+
+	/**
+	 * This operation is called by the JAX-RS runtime before an HTTP request is processed. It binds a lazy entity manager
+	 * reference to both the given request and the current thread, which creates an entity manager instance using this
+	 * provider's entity manager factory upon first lookup. In read-write mode, said entity manager begins a transaction
+	 * upon creation; in read-only mode, it is wrapped into a read-only view instead, and may be created using a replica.
+	 * As authentication consumes the "Authorization" header, it's hash is captured beforehand to identify the requester.
+	 * @param requestContext the JAX-RS request context
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public void filter (final ContainerRequestContext requestContext) throws NullPointerException {
+		if (requestContext == null) throw new NullPointerException();
+
+		final String requestName = requestContext.getMethod() + ' ' + requestContext.getUriInfo().getPath();
+		final String authorization = this.replicaRouter == null ? null : requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+		final String sessionKey = authorization == null ? null : HashCodes.sha2HashText(256, authorization);
+		final LazyEntityManager entityManager = new LazyEntityManager(requestName, this.endpointName(requestContext), sessionKey, this.isReadOnly(requestContext));
+		requestContext.setProperty(this.propertyName, entityManager);
 		this.entityManagerReference.set(entityManager);
 	}
 
 
 	/**
 	 * This operation is called by the JAX-RS runtime after an HTTP request has been processed, but before the entity stream has
-	 * been written. It decorates the response context's entity stream, causing said decorator to trigger once the entity stream
+	 * been written. It ends the thread binding of the request's entity manager reference, see above. If the request created an
+	 * entity manager, it commits the active transaction, replacing the response by an empty one with status 409 (Conflict)
+	 * or 500 (Internal Server Error) if the commit fails, and adds the persistence statistics as {@code Server-Timing}
+	 * response header. A successful commit records read-write requesters for read-your-writes consistency before the
+	 * response reaches them. It also decorates the response context's entity stream, causing said decorator to trigger once the entity stream
 	 * has been written. This in turn allows this operation to close and remove the entity manager associated with both the
-	 * current thread and this provider's persistence unit. Note that this technology relies on the entity stream (rather, the
-	 * decorator wrapping it) to be closed regardless of the presence of absence of a response entity; in other words, the
-	 * operation relies heavily on correct resource management by the JAX-RS implementation.
+	 * given request and this provider's persistence unit, regardless of the thread closing the entity stream, and provided
+	 * it has been created at all. Note that this technology relies on the entity stream (rather, the decorator wrapping it)
+	 * to be closed regardless of the presence of absence of a response entity; in other words, the operation relies heavily
+	 * on correct resource management by the JAX-RS implementation.
 	 * @param requestContext the JAX-RS request context
 	 * @param responseContext the JAX-RS response context
 	 * @throws NullPointerException if any of the given arguments is {@code null}
 	 */
 	public void filter (final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) throws NullPointerException {
+		final LazyEntityManager entityManager = (LazyEntityManager) requestContext.getProperty(this.propertyName);
+		if (entityManager != null) entityManager.endDispatch();
+		if (this.entityManagerReference.get() == entityManager) this.entityManagerReference.remove();
+
+		final PersistenceStatistics statistics = entityManager == null ? null : entityManager.getStatistics();
+		if (statistics != null) {
+			try {
+				entityManager.commit();
+			} catch (final PersistenceException exception) {
+				final boolean conflict = conflict(exception) != null;
+				if (conflict) this.conflictCount.increment();
+				Logger.getGlobal().log(conflict ? Level.INFO : Level.WARNING, "Transaction of request \"" + entityManager.getRequestName() + "\" could not be committed.", exception);
+				responseContext.setStatus((conflict ? Status.CONFLICT : Status.INTERNAL_SERVER_ERROR).getStatusCode());
+				responseContext.setEntity(null);
+			}
+
+			responseContext.getHeaders().add(SERVER_TIMING, statistics.toServerTiming());
+		}
+
 		final FilterOutputStream triggerStream = new FilterOutputStream(responseContext.getEntityStream()) {
 
 			/**
@@ -186,7 +579,7 @@ public class RestJpaLifecycleProvider implements ContainerRequestFilter, Contain
 				try {
 					super.close();
 				} finally {
-					RestJpaLifecycleProvider.this.closeEntityManager();
+					RestJpaLifecycleProvider.this.closeEntityManager(requestContext, entityManager);
 				}
 			}
 		};
@@ -195,19 +588,649 @@ public class RestJpaLifecycleProvider implements ContainerRequestFilter, Contain
 
 
 	/**
-	 * Commits an active transaction, and closes the entity manager associated with both
-	 * the current thread and this provider's persistence unit.
+	 * Executes the given operation using the read-write entity manager associated with the given request, see
+	 * {@link #retry(String, ContainerRequestContext, Function)}.
+	 * @param <T> the result type
+	 * @param requestContext the JAX-RS request context
+	 * @param operation the operation, which is passed the entity manager
+	 * @return the operation's result
+	 * @throws IllegalStateException if there is no entity manager associated with the given request, or if it is read-only
+	 * @throws ClientErrorException (409) if the operation still conflicts after the maximum number of attempts, or if
+	 *         the thread is interrupted while backing off
+	 * @throws PersistenceException if the operation or the commit fails for reasons other than an optimistic lock conflict
 	 */
-	private void closeEntityManager () {
-		final EntityManager entityManager = this.entityManagerReference.get();
-		this.entityManagerReference.remove();
+	private <T> T retry (final ContainerRequestContext requestContext, final Function<EntityManager,T> operation) throws IllegalStateException, ClientErrorException, PersistenceException {
+		final LazyEntityManager reference = (LazyEntityManager) requestContext.getProperty(this.propertyName);
+		if (reference == null) throw new IllegalStateException();
+		if (reference.readOnly) throw new IllegalStateException("read-only entity manager");
 
-		if (entityManager != null && entityManager.isOpen()) {
+		for (int attempt = 1; true; ++attempt) {
+			final EntityManager entityManager = reference.get();
 			try {
-				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().commit();
+				final T result = operation.apply(entityManager);
+				reference.commit();
+				return result;
+			} catch (final PersistenceException exception) {
+				final OptimisticLockException conflict = conflict(exception);
+				if (conflict == null) throw exception;
+				this.conflictCount.increment();
+
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+				entityManager.clear();
+				final Object entity = conflict.getEntity();
+				if (entity != null) this.entityManagerFactory.getCache().evict(entity.getClass(), this.entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity));
+				if (attempt >= this.retryAttempts) throw new ClientErrorException(Status.CONFLICT, exception);
+
+				try {
+					final long backoff = this.retryBackoff << Math.min(attempt - 1, 16);
+					Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+				} catch (final InterruptedException interrupt) {
+					Thread.currentThread().interrupt();
+					throw new ClientErrorException(Status.CONFLICT, exception);
+				}
+				this.retryCount.increment();
 			} finally {
-				entityManager.close();
+				if (!entityManager.getTransaction().isActive()) entityManager.getTransaction().begin();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the optimistic lock conflict causing the given exception.
+	 * @param exception the exception
+	 * @return the optimistic lock exception within the given exception's cause chain, or {@code null} for none
+	 */
+	static private OptimisticLockException conflict (final Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause())
+			if (cause instanceof OptimisticLockException) return (OptimisticLockException) cause;
+		return null;
+	}
+
+
+	/**
+	 * Removes the given lazy entity manager reference from the given request, and closes it.
+	 * @param requestContext the JAX-RS request context
+	 * @param entityManager the lazy entity manager reference associated with the given request, or {@code null} for none
+	 */
+	private void closeEntityManager (final ContainerRequestContext requestContext, final LazyEntityManager entityManager) {
+		requestContext.removeProperty(this.propertyName);
+		if (entityManager != null) entityManager.close();
+	}
+
+
+	/**
+	 * Requests the abort of all transactions that have been active longer than the maximum transaction duration, and
+	 * reports them. Entity managers without an active transaction are skipped while their request is being dispatched;
+	 * once dispatch has ended, entity managers that still haven't been closed within the maximum transaction duration are
+	 * rolled back and closed right away, regardless of their transaction state. This operation is periodically called
+	 * by the watchdog.
+	 */
+	private void abortStragglers () {
+		final long now = System.nanoTime();
+		for (final LazyEntityManager entityManager : this.openEntityManagers) {
+			if (entityManager.isDispatched()) {
+				final long duration = now - entityManager.getDispatchTime();
+				if (duration > this.maxTransactionDuration && entityManager.abort()) {
+					this.abortedEntityManagerCount.increment();
+					Logger.getGlobal().log(Level.SEVERE, "Entity manager of request \"{0}\" has not been closed {1}ms after resource dispatch ended, and is rolled back and closed by the watchdog.", new Object[] { entityManager.getRequestName(), TimeUnit.NANOSECONDS.toMillis(duration) });
+				}
+				continue;
 			}
+
+			if (!entityManager.isTransactionActive()) continue;
+			final long duration = now - entityManager.getTransactionTime();
+			if (duration <= this.maxTransactionDuration || !entityManager.requestAbort()) continue;
+
+			this.abortedEntityManagerCount.increment();
+			Logger.getGlobal().log(Level.SEVERE, "Transaction of request \"{0}\" exceeded the maximum transaction duration after {1}ms, and is rolled back by the request thread.", new Object[] { entityManager.getRequestName(), TimeUnit.NANOSECONDS.toMillis(duration) });
+		}
+	}
+
+
+	/**
+	 * Adds the given request statistics to the aggregated statistics of the given endpoint, creating and registering
+	 * the latter with the platform MBean server upon first request.
+	 * @param endpointName the endpoint name
+	 * @param statistics the request statistics
+	 */
+	private void aggregate (final String endpointName, final PersistenceStatistics statistics) {
+		this.endpointStatistics.computeIfAbsent(endpointName, key -> {
+			final EndpointStatistics endpointStatistics = new EndpointStatistics(key);
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(endpointStatistics, this.objectName(key));
+			} catch (final JMException exception) {
+				Logger.getGlobal().log(Level.WARNING, "Endpoint statistics \"" + key + "\" could not be registered with the platform MBean server.", exception);
+			}
+			return endpointStatistics;
+		}).add(statistics);
+	}
+
+
+	/**
+	 * Returns the JMX object name of the given endpoint's aggregated statistics.
+	 * @param endpointName the endpoint name
+	 * @return the object name
+	 * @throws JMException if the object name is malformed
+	 */
+	private ObjectName objectName (final String endpointName) throws JMException {
+		return new ObjectName("edu.sb.tool:type=EndpointStatistics,unit=" + ObjectName.quote(this.persistenceUnitName) + ",name=" + ObjectName.quote(endpointName));
+	}
+
+
+
+	/**
+	 * Instances of this class model lazy entity manager references, which create their entity manager upon first request.
+	 */
+	private class LazyEntityManager {
+		private final String requestName;
+		private final String endpointName;
+		private final String sessionKey;
+		private final boolean readOnly;
+		private ReplicaRouter.Replica replica;
+		private EntityManager delegate;
+		private EntityManager entityManager;
+		private PersistenceStatistics statistics;
+		private volatile long transactionTime;
+		private volatile boolean transactionActive;
+		private volatile boolean abortRequested;
+		private volatile boolean dispatched;
+		private volatile long dispatchTime;
+		private boolean closed;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param requestName the HTTP method and path of the originating request
+		 * @param endpointName the endpoint name
+		 * @param sessionKey the key identifying the requester for read-your-writes consistency, or {@code null} for none
+		 * @param readOnly whether or not the entity manager is read-only
+		 */
+		public LazyEntityManager (final String requestName, final String endpointName, final String sessionKey, final boolean readOnly) {
+			this.requestName = requestName;
+			this.endpointName = endpointName;
+			this.sessionKey = sessionKey;
+			this.readOnly = readOnly;
+		}
+
+
+		/**
+		 * Returns the request name.
+		 * @return the HTTP method and path of the originating request
+		 */
+		public String getRequestName () {
+			return this.requestName;
+		}
+
+
+		/**
+		 * Returns the transaction time.
+		 * @return the time the active transaction has begun, see {@link System#nanoTime()}
+		 */
+		public long getTransactionTime () {
+			return this.transactionTime;
+		}
+
+
+		/**
+		 * Returns whether or not a transaction is active.
+		 * @return {@code true} if the entity manager has been created, and it's transaction is active, {@code false} otherwise
+		 */
+		public boolean isTransactionActive () {
+			return this.transactionActive;
+		}
+
+
+		/**
+		 * Requests the active transaction to be rolled back by the thread using the entity manager, see
+		 * {@link #checkAbort()}. This operation may be called by any thread.
+		 * @return {@code true} if the abort has been requested, {@code false} if it had already been requested,
+		 *         or if there is no active transaction
+		 */
+		public synchronized boolean requestAbort () {
+			if (this.closed | this.abortRequested | !this.transactionActive) return false;
+			this.abortRequested = true;
+			return true;
+		}
+
+
+		/**
+		 * Rolls back the active transaction if it's abort has been requested, and fails in this case. This operation must
+		 * only be called by the thread using the entity manager.
+		 * @throws PersistenceException if the abort has been requested
+		 */
+		public synchronized void checkAbort () throws PersistenceException {
+			if (!this.abortRequested) return;
+
+			try {
+				if (this.delegate != null && this.delegate.isOpen() && this.delegate.getTransaction().isActive()) this.delegate.getTransaction().rollback();
+			} finally {
+				this.updateTransaction();
+			}
+			throw new PersistenceException("transaction of request \"" + this.requestName + "\" aborted, as it exceeded the maximum transaction duration");
+		}
+
+
+		/**
+		 * Updates the transaction state after the transaction may have begun or ended, recording the time a transaction
+		 * has begun. This operation must only be called by the thread using the entity manager.
+		 */
+		public synchronized void updateTransaction () {
+			final boolean active = !this.readOnly && this.delegate != null && this.delegate.isOpen() && this.delegate.getTransaction().isActive();
+			if (active & !this.transactionActive) this.transactionTime = System.nanoTime();
+			this.transactionActive = active;
+		}
+
+
+		/**
+		 * Returns whether or not resource dispatch has ended for the originating request.
+		 * @return {@code true} if the response filter has been called, {@code false} otherwise
+		 */
+		public boolean isDispatched () {
+			return this.dispatched;
+		}
+
+
+		/**
+		 * Returns the dispatch time.
+		 * @return the time resource dispatch has ended, see {@link System#nanoTime()}, or zero if it hasn't ended yet
+		 */
+		public long getDispatchTime () {
+			return this.dispatchTime;
+		}
+
+
+		/**
+		 * Records that resource dispatch has ended for the originating request, which ends this reference's thread binding.
+		 */
+		public void endDispatch () {
+			this.dispatchTime = System.nanoTime();
+			this.dispatched = true;
+		}
+
+
+		/**
+		 * Returns the persistence statistics.
+		 * @return the persistence statistics, or {@code null} if the entity manager has not been created yet
+		 */
+		public synchronized PersistenceStatistics getStatistics () {
+			return this.statistics;
+		}
+
+
+		/**
+		 * Returns the entity manager, creating it upon first request. In read-write mode, a transaction is begun upon
+		 * creation, and the entity manager is wrapped into a view tracking it's transactions; in read-only mode, the entity manager is created using a replica if one is selected, and wrapped into
+		 * a read-only view. Both views bind the persistence statistics to the calling thread for the duration of each
+		 * invocation.
+		 * @return the entity manager
+		 * @throws IllegalStateException if this reference has already been closed
+		 */
+		public synchronized EntityManager get () throws IllegalStateException {
+			if (this.closed) throw new IllegalStateException();
+			if (this.entityManager == null) {
+				this.statistics = new PersistenceStatistics();
+				final ReplicaRouter replicaRouter = RestJpaLifecycleProvider.this.replicaRouter;
+				this.replica = this.readOnly & replicaRouter != null ? replicaRouter.select(this.sessionKey) : null;
+				this.delegate = (this.replica == null ? RestJpaLifecycleProvider.this.entityManagerFactory : this.replica.getEntityManagerFactory()).createEntityManager();
+				if (this.replica != null) this.replica.acquire();
+				RestJpaLifecycleProvider.this.openEntityManagers.add(this);
+
+				if (this.readOnly) {
+					this.entityManager = ReadOnlyInvocationHandler.wrap(this.delegate, this.statistics);
+				} else {
+					this.delegate.getTransaction().begin();
+					this.updateTransaction();
+					this.entityManager = TransactionInvocationHandler.wrap(this.delegate, this, this.statistics);
+				}
+			}
+
+			return this.entityManager;
+		}
+
+
+		/**
+		 * Commits an active transaction, if the entity manager has been created and is not closed yet, and records read-write
+		 * sessions for read-your-writes consistency once the commit succeeded. If the transaction's abort has been requested,
+		 * it is rolled back instead.
+		 * @throws RollbackException if the commit fails
+		 * @throws PersistenceException if flushing fails, or if the transaction's abort has been requested
+		 */
+		public synchronized void commit () throws RollbackException, PersistenceException {
+			if (this.closed || this.delegate == null || !this.delegate.isOpen() || !this.delegate.getTransaction().isActive()) return;
+			this.checkAbort();
+
+			final PersistenceStatistics boundStatistics = this.statistics.bind();
+			final long start = System.nanoTime();
+			try {
+				this.delegate.getTransaction().commit();
+			} finally {
+				PersistenceStatistics.restore(boundStatistics);
+				this.updateTransaction();
+			}
+			this.statistics.commit(System.nanoTime() - start);
+			this.recordWrite();
+		}
+
+
+		/**
+		 * Records this reference's session as having written to the primary database, provided it is a read-write session
+		 * and replicas are configured. This operation must be called after each successful commit, and before the response
+		 * is written, as clients may issue their next request as soon as they have received the response.
+		 */
+		private void recordWrite () {
+			final ReplicaRouter replicaRouter = RestJpaLifecycleProvider.this.replicaRouter;
+			if (!this.readOnly & this.sessionKey != null & replicaRouter != null) replicaRouter.recordWrite(this.sessionKey);
+		}
+
+
+		/**
+		 * Commits an active transaction, or rolls it back if it's abort has been requested, and closes the entity manager if
+		 * it has been created. Subsequent requests for the entity manager fail. The persistence statistics are aggregated for
+		 * this reference's endpoint.
+		 */
+		public synchronized void close () {
+			if (this.closed) return;
+			this.closed = true;
+			RestJpaLifecycleProvider.this.openEntityManagers.remove(this);
+			if (this.delegate == null || !this.delegate.isOpen()) return;
+
+			final PersistenceStatistics boundStatistics = this.statistics.bind();
+			try {
+				if (this.delegate.getTransaction().isActive()) {
+					if (this.abortRequested) {
+						this.delegate.getTransaction().rollback();
+					} else {
+						final long start = System.nanoTime();
+						this.delegate.getTransaction().commit();
+						this.statistics.commit(System.nanoTime() - start);
+						this.recordWrite();
+					}
+				}
+			} finally {
+				this.transactionActive = false;
+				try {
+					this.delegate.close();
+				} finally {
+					this.delegate = this.entityManager = null;
+					if (this.replica != null) this.replica.release();
+					PersistenceStatistics.restore(boundStatistics);
+					RestJpaLifecycleProvider.this.aggregate(this.endpointName, this.statistics);
+				}
+			}
+		}
+
+
+		/**
+		 * Rolls back an active transaction, and closes the entity manager if it has been created and is not closed yet.
+		 * Subsequent requests for the entity manager fail. Note that this operation may be called by another thread
+		 * than the one using the entity manager; it is therefore only meant for shutting down this provider, and for
+		 * closing entity managers whose request has been dispatched, as the request thread no longer relies on them.
+		 * @return {@code true} if an entity manager has been aborted, {@code false} otherwise
+		 */
+		public synchronized boolean abort () {
+			if (this.closed) return false;
+			this.closed = true;
+			this.transactionActive = false;
+			RestJpaLifecycleProvider.this.openEntityManagers.remove(this);
+			if (this.delegate == null || !this.delegate.isOpen()) return false;
+
+			try {
+				if (this.delegate.getTransaction().isActive()) this.delegate.getTransaction().rollback();
+			} catch (final RuntimeException exception) {
+				Logger.getGlobal().log(Level.WARNING, "Transaction of request \"" + this.requestName + "\" could not be rolled back.", exception);
+			} finally {
+				this.delegate.close();
+				this.delegate = this.entityManager = null;
+				if (this.replica != null) this.replica.release();
+			}
+
+			return true;
+		}
+	}
+
+
+
+	/**
+	 * Invocation handler for read-write entity manager proxies, and the transaction proxies these return. It updates the
+	 * transaction state of it's lazy entity manager reference whenever a transaction begins or ends, and rolls back the
+	 * transaction on the calling thread once the watchdog has requested it's abort. Queries created are wrapped into
+	 * proxies binding the persistence statistics as well.
+	 */
+	static private class TransactionInvocationHandler implements InvocationHandler {
+		static private final Set<String> PASSIVE_OPERATIONS = Set.of("isOpen", "close", "isActive", "rollback", "getRollbackOnly", "toString");
+		static private final Set<String> TRANSACTION_OPERATIONS = Set.of("begin", "commit", "rollback");
+
+		private final Object delegate;
+		private final LazyEntityManager reference;
+		private final PersistenceStatistics statistics;
+
+
+		/**
+		 * Returns a transaction tracking proxy for the given entity manager.
+		 * @param delegate the entity manager
+		 * @param reference the lazy entity manager reference
+		 * @param statistics the persistence statistics bound during invocations
+		 * @return the transaction tracking entity manager
+		 */
+		static public EntityManager wrap (final EntityManager delegate, final LazyEntityManager reference, final PersistenceStatistics statistics) {
+			return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class<?>[] { EntityManager.class }, new TransactionInvocationHandler(delegate, reference, statistics));
+		}
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param delegate the entity manager or entity transaction
+		 * @param reference the lazy entity manager reference
+		 * @param statistics the persistence statistics bound during invocations
+		 */
+		private TransactionInvocationHandler (final Object delegate, final LazyEntityManager reference, final PersistenceStatistics statistics) {
+			this.delegate = delegate;
+			this.reference = reference;
+			this.statistics = statistics;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws PersistenceException if the transaction's abort has been requested
+		 */
+		public Object invoke (final Object proxy, final Method method, final Object[] arguments) throws PersistenceException, Throwable {
+			final String name = method.getName();
+			switch (name) {
+				case "equals":
+					return proxy == arguments[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					if (!PASSIVE_OPERATIONS.contains(name)) this.reference.checkAbort();
+					break;
+			}
+
+			final Object result;
+			final PersistenceStatistics boundStatistics = this.statistics.bind();
+			try {
+				result = method.invoke(this.delegate, arguments);
+			} catch (final InvocationTargetException exception) {
+				throw exception.getCause();
+			} finally {
+				PersistenceStatistics.restore(boundStatistics);
+				if (this.delegate instanceof EntityTransaction && TRANSACTION_OPERATIONS.contains(name)) this.reference.updateTransaction();
+			}
+
+			if (result instanceof EntityTransaction && this.delegate instanceof EntityManager)
+				return Proxy.newProxyInstance(EntityTransaction.class.getClassLoader(), new Class<?>[] { EntityTransaction.class }, new TransactionInvocationHandler(result, this.reference, this.statistics));
+			if (result instanceof Query && name.startsWith("create"))
+				return QueryInvocationHandler.wrap((Query) result, method.getReturnType(), this.statistics);
+			return result;
+		}
+	}
+
+
+
+	/**
+	 * Invocation handler for read-only entity manager proxies, which apply EclipseLink's read-only query hint to all
+	 * queries and finds, and refuse write operations. Queries created are wrapped into proxies binding the persistence
+	 * statistics as well.
+	 */
+	static private class ReadOnlyInvocationHandler implements InvocationHandler {
+		static private final Set<String> WRITE_OPERATIONS = Set.of("persist", "merge", "remove", "lock", "joinTransaction", "getTransaction");
+		static private final Map<String,Object> READ_ONLY_HINTS = Map.of(QueryHints.READ_ONLY, HintValues.TRUE);
+
+		private final EntityManager delegate;
+		private final PersistenceStatistics statistics;
+
+
+		/**
+		 * Returns a read-only proxy for the given entity manager.
+		 * @param delegate the entity manager
+		 * @param statistics the persistence statistics bound during invocations
+		 * @return the read-only entity manager
+		 */
+		static public EntityManager wrap (final EntityManager delegate, final PersistenceStatistics statistics) {
+			return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class<?>[] { EntityManager.class }, new ReadOnlyInvocationHandler(delegate, statistics));
+		}
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param delegate the entity manager
+		 * @param statistics the persistence statistics bound during invocations
+		 */
+		private ReadOnlyInvocationHandler (final EntityManager delegate, final PersistenceStatistics statistics) {
+			this.delegate = delegate;
+			this.statistics = statistics;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException if the given method represents a write operation
+		 */
+		@SuppressWarnings("unchecked")
+		public Object invoke (final Object proxy, final Method method, final Object[] arguments) throws IllegalStateException, Throwable {
+			final String name = method.getName();
+			switch (name) {
+				case "equals":
+					return proxy == arguments[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "find":
+					if (arguments.length == 2) return this.find((Class<?>) arguments[0], arguments[1], READ_ONLY_HINTS);
+					if (arguments.length == 3 && arguments[2] instanceof Map) {
+						final Map<String,Object> hints = new HashMap<>((Map<String,Object>) arguments[2]);
+						hints.putAll(READ_ONLY_HINTS);
+						return this.find((Class<?>) arguments[0], arguments[1], hints);
+					}
+					break;
+				case "createQuery":
+					if (arguments[0] instanceof CriteriaUpdate | arguments[0] instanceof CriteriaDelete) throw new IllegalStateException("read-only entity manager");
+					break;
+				default:
+					if (WRITE_OPERATIONS.contains(name)) throw new IllegalStateException("read-only entity manager");
+					break;
+			}
+
+			final Object result;
+			final PersistenceStatistics boundStatistics = this.statistics.bind();
+			try {
+				result = method.invoke(this.delegate, arguments);
+			} catch (final InvocationTargetException exception) {
+				throw exception.getCause();
+			} finally {
+				PersistenceStatistics.restore(boundStatistics);
+			}
+
+			if (result instanceof Query && !(result instanceof StoredProcedureQuery) && name.startsWith("create")) {
+				try {
+					((Query) result).setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+				} catch (final IllegalArgumentException exception) {
+					// native queries without result class do not return entities, and reject the hint
+				}
+			}
+
+			if (result instanceof Query && name.startsWith("create"))
+				return QueryInvocationHandler.wrap((Query) result, method.getReturnType(), this.statistics);
+			return result;
+		}
+
+
+		/**
+		 * Finds the entity of the given type with the given identity, while the persistence statistics are bound.
+		 * @param type the entity type
+		 * @param identity the entity identity
+		 * @param hints the query hints
+		 * @return the entity, or {@code null} for none
+		 */
+		private Object find (final Class<?> type, final Object identity, final Map<String,Object> hints) {
+			final PersistenceStatistics boundStatistics = this.statistics.bind();
+			try {
+				return this.delegate.find(type, identity, hints);
+			} finally {
+				PersistenceStatistics.restore(boundStatistics);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Invocation handler for query proxies, which bind the persistence statistics of their entity manager to the calling
+	 * thread for the duration of each invocation. Invocations returning the query itself, like setting parameters, return
+	 * the proxy instead.
+	 */
+	static private class QueryInvocationHandler implements InvocationHandler {
+		private final Query delegate;
+		private final PersistenceStatistics statistics;
+
+
+		/**
+		 * Returns a proxy for the given query.
+		 * @param delegate the query
+		 * @param type the query interface, either {@link Query} or one of it's sub-interfaces
+		 * @param statistics the persistence statistics bound during invocations
+		 * @return the query proxy
+		 */
+		static public Query wrap (final Query delegate, final Class<?> type, final PersistenceStatistics statistics) {
+			return (Query) Proxy.newProxyInstance(Query.class.getClassLoader(), new Class<?>[] { type }, new QueryInvocationHandler(delegate, statistics));
+		}
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param delegate the query
+		 * @param statistics the persistence statistics bound during invocations
+		 */
+		private QueryInvocationHandler (final Query delegate, final PersistenceStatistics statistics) {
+			this.delegate = delegate;
+			this.statistics = statistics;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Object invoke (final Object proxy, final Method method, final Object[] arguments) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return proxy == arguments[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					break;
+			}
+
+			final Object result;
+			final PersistenceStatistics boundStatistics = this.statistics.bind();
+			try {
+				result = method.invoke(this.delegate, arguments);
+			} catch (final InvocationTargetException exception) {
+				throw exception.getCause();
+			} finally {
+				PersistenceStatistics.restore(boundStatistics);
+			}
+
+			return result == this.delegate ? proxy : result;
 		}
 	}
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 module edu.sb.cookbook.model {
 	requires transitive java.logging;
+	requires java.desktop;
+	requires java.management;
+	requires java.sql;
 	requires transitive javax.annotation.api;
 	requires transitive java.validation;
 	requires transitive java.json.bind;